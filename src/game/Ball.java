@@ -9,11 +9,48 @@ public class Ball implements Renderable, Updatable {
     public final Vector2D speed = new Vector2D(0,0);
     public static final int RADIUS = 10;
     public final MatchManager master;
-    private final BufferedImage sprite;
+    /**
+     * How many times the ball hit a racket since it was created, used for the statistics of the matches
+     */
+    private int hitCount = 0;
+    /**
+     * Enough for a ball that goes hundreds of times faster than in a real match
+     */
+    private static final int MAX_IMPACTS_PER_TICK = 64;
+    public static final float NO_IMPACT = -1;
+    private static final int UPPER_WALL = 0, LOWER_WALL = 1, PLAYER1 = 2, PLAYER2 = 3;
+    /**
+     * What the ball hits next, found by {@link #nextImpact(float)}
+     */
+    private int impact;
+    /**
+     * With the fixed-point physics, the position and the speed are these numbers in Q16.16 (see {@link FixedPoint}),
+     * and {@link #position} and {@link #speed} are only copies of them, for the rendering. The results don't depend
+     * on the JVM, the platform nor the JIT, unlike the float physics whose bounces on the rackets use
+     * {@link Math#cos(double)} and {@link Math#sin(double)}.
+     */
+    private boolean fixedPoint = false;
+    private int fixedX, fixedY, fixedSpeedX, fixedSpeedY;
+    static final long NO_FIXED_IMPACT = -1;
+    private static final int FIXED_RADIUS = FixedPoint.fromInt(RADIUS);
+    private static final int FIXED_TOP = FixedPoint.fromInt(RADIUS);
+    private static final int FIXED_BOTTOM = FixedPoint.fromInt(Game.HEIGHT - RADIUS);
 
     public Ball(MatchManager master) {
         this.master = master;
-        sprite = new BufferedImage(RADIUS * 2, RADIUS * 2, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    /**
+     * Holds the image of the balls, shared by every ball. The class is only initialized the first time a ball is
+     * rendered, so headless matches don't create any image, and the JVM initializes it once even if several threads
+     * render at the same time.
+     */
+    private static final class Sprite {
+        static final BufferedImage IMAGE = createSprite();
+    }
+
+    private static BufferedImage createSprite() {
+        BufferedImage sprite = new BufferedImage(RADIUS * 2, RADIUS * 2, BufferedImage.TYPE_INT_ARGB);
         Graphics2D g = (Graphics2D) sprite.getGraphics();
         g.setPaint(new RadialGradientPaint(
                 RADIUS / 2f,
@@ -25,50 +62,565 @@ public class Ball implements Renderable, Updatable {
         ));
         g.fillOval(0,0, RADIUS * 2, RADIUS * 2);
         g.dispose();
+        return sprite;
     }
 
-    private void testCollisions() {
-        // upper wall
-        if (this.position.getY() < RADIUS) {
-            speed.setY(this.speed.getY() * -1);
-            position.setY(RADIUS);
+    /**
+     * Moves the ball by its speed for one tick, bouncing on everything it meets on its way. Instead of moving then
+     * testing whether the ball overlaps something, the exact time of the next impact is calculated, the ball is moved
+     * there, bounces, and goes on for the rest of the tick, until the end of the tick. So the ball can't go through a
+     * racket however fast it is, and it can bounce several times in a single tick. When nothing is hit, the ball is
+     * simply moved by its speed.
+     */
+    private void move() {
+        // most ticks, the ball starts and ends in the area no racket nor wall can reach, and so does everything between
+        float left = master.player1.x + Racket.WIDTH + RADIUS;
+        float right = master.player2.x - RADIUS;
+        float x = position.getX(), y = position.getY();
+        float nextX = x + speed.getX(), nextY = y + speed.getY();
+        if (x > left && x < right && nextX > left && nextX < right
+                && nextY > RADIUS && nextY < Game.HEIGHT - RADIUS && y >= RADIUS && y <= Game.HEIGHT - RADIUS) {
+            position.add(speed);
             return;
         }
-        // inferior wall
-        if (this.position.getY() > Game.HEIGHT - RADIUS) {
-            speed.setY(speed.getY() * -1);
-            position.setY(Game.HEIGHT - RADIUS);
+        float remaining = 1;
+        for (int i = 0; i < MAX_IMPACTS_PER_TICK; i++) {
+            float t = nextImpact(remaining);
+            if (t == NO_IMPACT) {
+                if (remaining == 1) position.add(speed);
+                else position.add(speed.getX() * remaining, speed.getY() * remaining);
+                return;
+            }
+            position.add(speed.getX() * t, speed.getY() * t);
+            remaining -= t;
+            bounce();
         }
+        // too many impacts for a tick, the ball stops there until the next tick
+        position.setY(Math.min(Game.HEIGHT - RADIUS, Math.max(RADIUS, position.getY())));
+    }
 
-        float halfHeight = (float) Racket.HEIGHT / 2;
+    /**
+     * Turns the fixed-point physics on or off. The position and the speed are kept, rounded to the nearest number in
+     * Q16.16 when it's turned on.
+     * @param fixedPoint true for the fixed-point physics, false for the float physics (the default)
+     */
+    public void setFixedPoint(boolean fixedPoint) {
+        this.fixedPoint = fixedPoint;
+        if (fixedPoint) {
+            fixedX = FixedPoint.fromFloat(position.getX());
+            fixedY = FixedPoint.fromFloat(position.getY());
+            fixedSpeedX = FixedPoint.fromFloat(speed.getX());
+            fixedSpeedY = FixedPoint.fromFloat(speed.getY());
+        }
+    }
+
+    public boolean isFixedPoint() {
+        return fixedPoint;
+    }
+
+    /**
+     * Moves the ball, with either physics. Writing {@link #position} directly only works with the float physics.
+     */
+    public void setPosition(float x, float y) {
+        position.set(x, y);
+        if (fixedPoint) {
+            fixedX = FixedPoint.fromFloat(x);
+            fixedY = FixedPoint.fromFloat(y);
+        }
+    }
+
+    /**
+     * Changes the speed, with either physics. Writing {@link #speed} directly only works with the float physics.
+     */
+    public void setSpeed(float vx, float vy) {
+        speed.set(vx, vy);
+        if (fixedPoint) {
+            fixedSpeedX = FixedPoint.fromFloat(vx);
+            fixedSpeedY = FixedPoint.fromFloat(vy);
+        }
+    }
+
+    int getFixedX() {
+        return fixedX;
+    }
+
+    int getFixedY() {
+        return fixedY;
+    }
+
+    int getFixedSpeedX() {
+        return fixedSpeedX;
+    }
+
+    int getFixedSpeedY() {
+        return fixedSpeedY;
+    }
+
+    /**
+     * Copies the fixed-point position and speed into the float ones, which are rendered.
+     */
+    private void copyFixed() {
+        position.set(FixedPoint.toFloat(fixedX), FixedPoint.toFloat(fixedY));
+        speed.set(FixedPoint.toFloat(fixedSpeedX), FixedPoint.toFloat(fixedSpeedY));
+    }
+
+    /**
+     * The bounds of the fast path of {@link #moveFixedStraight()}, calculated again only when a racket moves
+     * horizontally (which it never does during a match), since converting them every tick costs as much as the move
+     */
+    private int fixedLeft, fixedRight;
+    private float boundsX1 = Float.NaN, boundsX2 = Float.NaN;
+
+    private void updateFixedBounds() {
+        float x1 = master.player1.x, x2 = master.player2.x;
+        if (x1 == boundsX1 && x2 == boundsX2) return;
+        fixedLeft = FixedPoint.fromFloat(x1 + Racket.WIDTH + RADIUS);
+        fixedRight = FixedPoint.fromFloat(x2 - RADIUS);
+        boundsX1 = x1;
+        boundsX2 = x2;
+    }
+
+    /**
+     * The fast path of the fixed-point physics, apart from {@link #moveFixed()} so it's small enough to be inlined in
+     * {@link #update()}
+     * @return true if the ball was moved, false if it may hit something this tick
+     */
+    private boolean moveFixedStraight() {
+        updateFixedBounds();
+        int nextX = fixedX + fixedSpeedX, nextY = fixedY + fixedSpeedY;
+        if (between(fixedX, fixedLeft, fixedRight) && between(nextX, fixedLeft, fixedRight)
+                && between(nextY, FIXED_TOP, FIXED_BOTTOM) && between(fixedY, FIXED_TOP - 1, FIXED_BOTTOM + 1)) {
+            fixedX = nextX;
+            fixedY = nextY;
+            // the speed didn't change
+            position.set(FixedPoint.toFloat(fixedX), FixedPoint.toFloat(fixedY));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * The same as {@link #move()}, in fixed point : the times of the impacts are in Q16.16 too, a whole tick being
+     * {@link FixedPoint#ONE}. The fast path is {@link #moveFixedStraight()}.
+     */
+    private void moveFixed() {
+        long remaining = FixedPoint.ONE;
+        int i = 0;
+        for (; i < MAX_IMPACTS_PER_TICK; i++) {
+            long t = nextFixedImpact(remaining);
+            if (t == NO_FIXED_IMPACT) {
+                fixedX += (int) (fixedSpeedX * remaining >> FixedPoint.FRACTION_BITS);
+                fixedY += (int) (fixedSpeedY * remaining >> FixedPoint.FRACTION_BITS);
+                break;
+            }
+            fixedX += (int) (fixedSpeedX * t >> FixedPoint.FRACTION_BITS);
+            fixedY += (int) (fixedSpeedY * t >> FixedPoint.FRACTION_BITS);
+            remaining -= t;
+            bounceFixed();
+        }
+        // too many impacts for a tick, the ball stops there until the next tick
+        if (i == MAX_IMPACTS_PER_TICK) fixedY = Math.min(FIXED_BOTTOM, Math.max(FIXED_TOP, fixedY));
+        copyFixed();
+    }
+
+    /**
+     * @return true if lo < v < hi, with a single comparison
+     */
+    private static boolean between(int v, int lo, int hi) {
+        return Integer.compareUnsigned(v - lo - 1, hi - lo - 1) < 0;
+    }
+
+    /**
+     * The same as {@link #nextImpact(float)}, in fixed point.
+     */
+    private long nextFixedImpact(long maxTime) {
+        long first = NO_FIXED_IMPACT;
+        // a division is only needed if the ball reaches a wall before maxTime
+        long endY = fixedY + (fixedSpeedY * maxTime >> FixedPoint.FRACTION_BITS);
+        if (fixedSpeedY < 0 && endY <= FIXED_TOP) {
+            long t = Math.max(0, FixedPoint.div(FIXED_TOP - fixedY, fixedSpeedY));
+            if (t <= maxTime) {
+                first = t;
+                impact = UPPER_WALL;
+            }
+        } else if (fixedSpeedY > 0 && endY >= FIXED_BOTTOM) {
+            long t = Math.max(0, FixedPoint.div(FIXED_BOTTOM - fixedY, fixedSpeedY));
+            if (t <= maxTime) {
+                first = t;
+                impact = LOWER_WALL;
+            }
+        }
+        for (int i = 0; i < 2; i++) {
+            Racket player = (i == 0) ? master.player1 : master.player2;
+            long t = racketImpactFixed(fixedX, fixedY, fixedSpeedX, fixedSpeedY, player,
+                    (first == NO_FIXED_IMPACT) ? maxTime : first);
+            if (t != NO_FIXED_IMPACT && (first == NO_FIXED_IMPACT || t < first)) {
+                first = t;
+                impact = (i == 0) ? PLAYER1 : PLAYER2;
+            }
+        }
+        return first;
+    }
+
+    /**
+     * The same as {@link #racketImpact(float, float, float, float, Racket, float)}, in fixed point. The time the ball
+     * enters the circle of a corner is calculated from the distance between the corner and the line of the ball, since
+     * the squares of the quadratic equation wouldn't fit in a long.
+     * @param x the x of the center of the ball, in Q16.16
+     * @param y the y of the center of the ball, in Q16.16
+     * @param vx the horizontal speed of the ball, in Q16.16
+     * @param vy the vertical speed of the ball, in Q16.16
+     * @param player the racket
+     * @param maxTime the latest impact that matters, in ticks in Q16.16
+     * @return the time of the impact, in ticks in Q16.16, or {@link #NO_FIXED_IMPACT}
+     */
+    static long racketImpactFixed(int x, int y, int vx, int vy, Racket player, long maxTime) {
+        if ((long) vx * player.side >= 0) return NO_FIXED_IMPACT;
+        int halfWidth = FixedPoint.fromInt(Racket.WIDTH) / 2;
+        int halfHeight = FixedPoint.fromInt(Racket.HEIGHT) / 2;
+        int px = x - player.getFixedCenterX();
+        int py = y - player.getFixedCenterY();
+        int dx = Math.abs(px);
+        int dy = Math.abs(py);
+
+        if (dx < halfWidth + FIXED_RADIUS && dy < halfHeight + FIXED_RADIUS) {
+            if (dx < halfWidth || dy < halfHeight) return 0;
+            long cornerX = dx - halfWidth, cornerY = dy - halfHeight;
+            if (cornerX * cornerX + cornerY * cornerY < (long) FIXED_RADIUS * FIXED_RADIUS) return 0;
+        }
+
+        long reachX = halfWidth + FIXED_RADIUS, reachY = halfHeight + FIXED_RADIUS;
+        // the box the ball sweeps until maxTime, with a margin for the roundings : if it doesn't reach the racket,
+        // the divisions below are not needed, which is most of the time
+        long endX = px + (vx * maxTime >> FixedPoint.FRACTION_BITS);
+        long endY = py + (vy * maxTime >> FixedPoint.FRACTION_BITS);
+        if (Math.min(px, endX) > reachX + 2 || Math.max(px, endX) < -reachX - 2
+                || Math.min(py, endY) > reachY + 2 || Math.max(py, endY) < -reachY - 2) return NO_FIXED_IMPACT;
+        // the times of the slabs are fractions with a positive denominator, compared by multiplying them crosswise,
+        // so only the time that's kept is divided
+        int sx = Integer.signum(vx);
+        long enterNum = -reachX - (long) px * sx, exitNum = reachX - (long) px * sx;
+        long enterDen = Math.abs((long) vx), exitDen = enterDen;
+        if (vy != 0) {
+            int sy = Integer.signum(vy);
+            long den = Math.abs((long) vy);
+            long enterY = -reachY - (long) py * sy, exitY = reachY - (long) py * sy;
+            if (enterY * enterDen > enterNum * den) {
+                enterNum = enterY;
+                enterDen = den;
+            }
+            if (exitY * exitDen < exitNum * den) {
+                exitNum = exitY;
+                exitDen = den;
+            }
+        } else if (dy >= reachY) return NO_FIXED_IMPACT;
+        if (exitNum <= 0 || (enterNum << FixedPoint.FRACTION_BITS) > maxTime * enterDen
+                || enterNum * exitDen >= exitNum * enterDen) return NO_FIXED_IMPACT;
+        long enter = Math.max(0, FixedPoint.div(enterNum, enterDen));
+        long exit = FixedPoint.div(exitNum, exitDen);
+
+        long ex = px + (vx * enter >> FixedPoint.FRACTION_BITS);
+        long ey = py + (vy * enter >> FixedPoint.FRACTION_BITS);
+        if (Math.abs(ex) <= halfWidth || Math.abs(ey) <= halfHeight) return enter;
+        long cx = px - Long.signum(ex) * halfWidth;
+        long cy = py - Long.signum(ey) * halfHeight;
+        long norm = FixedPoint.norm(vx, vy);
+        // how far along its line the ball is closest to the corner, and how close it gets
+        long along = -((cx * vx + cy * vy) / norm);
+        long across = (cx * vy - cy * vx) / norm;
+        long radiusSq = (long) FIXED_RADIUS * FIXED_RADIUS;
+        if (across * across >= radiusSq) return NO_FIXED_IMPACT; // misses the corner
+        long t = FixedPoint.div(along - FixedPoint.sqrt(radiusSq - across * across), norm);
+        return (t > maxTime || t >= exit) ? NO_FIXED_IMPACT : Math.max(enter, t);
+    }
+
+    /**
+     * The same as {@link #bounce()}, in fixed point.
+     */
+    private void bounceFixed() {
+        switch (impact) {
+            case UPPER_WALL -> {
+                fixedSpeedY = -fixedSpeedY;
+                fixedY = FIXED_TOP;
+            }
+            case LOWER_WALL -> {
+                fixedSpeedY = -fixedSpeedY;
+                fixedY = FIXED_BOTTOM;
+            }
+            case PLAYER1 -> handleRacketCollisionFixed(master.player1);
+            case PLAYER2 -> handleRacketCollisionFixed(master.player2);
+        }
+    }
+
+    /**
+     * The same as {@link #handleRacketCollision(float, float, int)}, in fixed point, with the trigonometry of
+     * {@link FixedPoint}.
+     */
+    private void handleRacketCollisionFixed(Racket player) {
+        // 60° at the edge of the racket is a third of a turn for a whole height of the racket
+        long offset = fixedY - player.getFixedCenterY();
+        int angle = (int) (offset * FixedPoint.TURN / (3L * FixedPoint.fromInt(Racket.HEIGHT)));
+        long norm = FixedPoint.norm(fixedSpeedX, fixedSpeedY);
+        norm += Math.min(norm / 20, FixedPoint.ONE);
+        fixedSpeedX = (int) (norm * FixedPoint.cos(angle) >> FixedPoint.FRACTION_BITS) * player.side;
+        fixedSpeedY = (int) (norm * FixedPoint.sin(angle) >> FixedPoint.FRACTION_BITS);
+        fixedX = player.getFixedCenterX() + (FixedPoint.fromInt(Racket.WIDTH) / 2 + FIXED_RADIUS) * player.side;
+        hitCount++;
+        master.retargetComputers();
+    }
+
+    /**
+     * Moves the ball through as many ticks as possible, up to {@code maxTicks}, as long as every tick would take the
+     * fast path of {@link #move()} (the ball flies straight, far from the walls and the rackets). The position is
+     * exactly the one the ticks would give, to the bit, but the ticks are not played one by one, see
+     * {@link #addRepeatedly(float, float, long, float, float)}.
+     * @param maxTicks the most ticks to skip
+     * @return the number of ticks skipped, 0 if the next tick is not a straight move
+     */
+    long skipStraightMoves(long maxTicks) {
+        if (fixedPoint) return skipStraightFixedMoves(maxTicks);
+        float left = master.player1.x + Racket.WIDTH + RADIUS;
+        float right = master.player2.x - RADIUS;
+        float x = position.getX(), y = position.getY();
+        if (!(x > left && x < right && y >= RADIUS && y <= Game.HEIGHT - RADIUS)) return 0;
+        long ticks = addRepeatedly(x, speed.getX(), maxTicks, left, right);
+        float endX = skipped;
+        long ticksY = addRepeatedly(y, speed.getY(), ticks, RADIUS, Game.HEIGHT - RADIUS);
+        float endY = skipped;
+        if (ticksY < ticks) {
+            ticks = ticksY;
+            addRepeatedly(x, speed.getX(), ticks, left, right);
+            endX = skipped;
+        }
+        position.set(endX, endY);
+        return ticks;
+    }
+
+    /**
+     * The same as {@link #skipStraightMoves(long)} with the fixed-point physics, where the additions are exact, so
+     * the number of ticks is a division.
+     */
+    private long skipStraightFixedMoves(long maxTicks) {
+        updateFixedBounds();
+        int left = fixedLeft, right = fixedRight;
+        if (!(fixedX > left && fixedX < right && fixedY >= FIXED_TOP && fixedY <= FIXED_BOTTOM)) return 0;
+        long ticks = Math.min(maxTicks, Math.min(ticksInside(fixedX, fixedSpeedX, left, right),
+                ticksInside(fixedY, fixedSpeedY, FIXED_TOP, FIXED_BOTTOM)));
+        fixedX += (int) (ticks * fixedSpeedX);
+        fixedY += (int) (ticks * fixedSpeedY);
+        copyFixed();
+        return ticks;
+    }
+
+    /**
+     * @return the most times d can be added to v with the result staying strictly between lo and hi
+     */
+    private static long ticksInside(int v, int d, int lo, int hi) {
+        if (d > 0) return Math.max(0, ((long) hi - 1 - v) / d);
+        if (d < 0) return Math.max(0, ((long) v - lo - 1) / -d);
+        return (v > lo && v < hi) ? Long.MAX_VALUE : 0;
+    }
+
+    /**
+     * The result of the last {@link #addRepeatedly(float, float, long, float, float)}
+     */
+    private float skipped;
+
+    /**
+     * Adds d to v again and again, at most n times and as long as the result stays strictly between lo and hi, and
+     * gives exactly the float that many additions would give, roundings included. It relies on the fact that while v
+     * stays within a power of 2 and the next one (a binade), where every float is a multiple of the same ulp, adding d
+     * always adds the same multiple of that ulp (d rounded to it). So within a binade, far enough from its bounds, the
+     * n-th value is calculated with a multiplication. The first addition of a binade is done for real, since a tie
+     * (d exactly halfway between 2 multiples of the ulp) is rounded to even and may change the increment once. Near the
+     * bounds of a binade, the additions are done one by one.
+     * @param v the value before the first addition, strictly between lo and hi
+     * @param d what's added each time
+     * @param n the most additions
+     * @param lo the exclusive lower bound
+     * @param hi the exclusive upper bound
+     * @return the number of additions done, the value after them is left in {@link #skipped}
+     */
+    private long addRepeatedly(float v, float d, long n, float lo, float hi) {
+        long done = 0;
+        while (done < n) {
+            float next = v + d;
+            if (!(next > lo && next < hi)) break;
+            float u = Math.ulp(v);
+            float binade = Math.scalb(1f, Math.getExponent(v));
+            // the part of the binade where v + d can't leave the binade, so it's rounded to a multiple of u
+            float margin = Math.abs(d) + u;
+            float a = binade + margin;
+            float b = 2 * binade - margin;
+            float increment = (next + d) - next;
+            if (increment == 0) {
+                // d is too small to move v anymore, or 0 like the vertical speed of a serve
+                v = next;
+                done = n;
+                break;
+            }
+            if (v < a || v > b || next < a || next > b || Math.ulp(next) != u) {
+                v = next;
+                done++;
+                continue;
+            }
+            // v_i = next + (i - 1) * increment, valid while v_(i - 1) stays in [a, b] and v_i in (lo, hi)
+            long steps = n - done;
+            double limit = (increment > 0) ? Math.min(b, hi) : Math.max(a, lo);
+            long inside = (long) ((limit - next) / increment) + 1;
+            // a value on the limit itself is fine for [a, b] but not for (lo, hi), fixed up below
+            steps = Math.min(steps, inside + 1);
+            double last = next + (double) (steps - 1) * increment;
+            while (steps > 1 && !(last > lo && last < hi && previousInside(last - increment, a, b))) {
+                steps--;
+                last -= increment;
+            }
+            v = (float) last;
+            done += steps;
+        }
+        skipped = v;
+        return done;
+    }
+
+    private static boolean previousInside(double value, float a, float b) {
+        return value >= a && value <= b;
+    }
+
+    /**
+     * Finds the first thing the ball hits if it moves by its speed for the given time, and keeps it in
+     * {@link #impact} for {@link #bounce()}.
+     * @param maxTime the time left in the tick, in ticks
+     * @return the time of the impact, in ticks, or {@link #NO_IMPACT} if nothing is hit within {@code maxTime}
+     */
+    private float nextImpact(float maxTime) {
+        float first = NO_IMPACT;
+        float vy = speed.getY();
+        // walls, the ball already beyond a wall bounces right away
+        if (vy < 0) {
+            float t = Math.max(0, (RADIUS - position.getY()) / vy);
+            if (t <= maxTime) {
+                first = t;
+                impact = UPPER_WALL;
+            }
+        } else if (vy > 0) {
+            float t = Math.max(0, (Game.HEIGHT - RADIUS - position.getY()) / vy);
+            if (t <= maxTime) {
+                first = t;
+                impact = LOWER_WALL;
+            }
+        }
+        // rackets, read from the fields rather than from getPlayers() so no array is created every tick
+        for (int i = 0; i < 2; i++) {
+            Racket player = (i == 0) ? master.player1 : master.player2;
+            float t = racketImpact(position.getX(), position.getY(), speed.getX(), speed.getY(), player,
+                    (first == NO_IMPACT) ? maxTime : first);
+            if (t != NO_IMPACT && (first == NO_IMPACT || t < first)) {
+                first = t;
+                impact = (i == 0) ? PLAYER1 : PLAYER2;
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Calculates when a ball hits a racket, which is when its center enters the racket inflated by the radius of the
+     * ball (a rectangle with rounded corners). The ball is regarded as a point moving in a straight line : the time it
+     * enters the bounding box of the inflated racket is found with the slabs method, and if it enters by a corner, the
+     * time it enters the circle of that corner is calculated instead. It's static so the balls of a
+     * {@link game.arena.BallArena}, which are not Ball objects, collide the same way.
+     * @param x the x of the center of the ball
+     * @param y the y of the center of the ball
+     * @param vx the horizontal speed of the ball
+     * @param vy the vertical speed of the ball
+     * @param player the racket
+     * @param maxTime the latest impact that matters, in ticks
+     * @return the time of the impact, in ticks, or {@link #NO_IMPACT} if there is none within {@code maxTime}
+     */
+    public static float racketImpact(float x, float y, float vx, float vy, Racket player, float maxTime) {
+        // a ball going toward the field (which is where a racket sends it) can't hit that racket
+        if (vx * player.side >= 0) return NO_IMPACT;
         float halfWidth = (float) Racket.WIDTH / 2;
-        // rackets
-        for (Racket player : master.getPlayers()) {
-            Vector2D c = player.getCenter();
-
-            // gets the distances and if it's too far for a collision to happen, we skip
-            float dx = Math.abs(c.getX() - position.getX());
-            if (dx >= halfWidth + RADIUS) continue;
-            float dy = Math.abs(c.getY() - position.getY());
-            if (dy >= halfHeight + RADIUS) continue;
-
-            // easy cases where the collisions are obvious geometrically
-            if (dx < halfWidth || dy < halfHeight) {
-                handleRacketCollision(c, player.side);
-                return;
+        float halfHeight = (float) Racket.HEIGHT / 2;
+        // the position relative to the center of the racket
+        float px = x - player.getCenterX();
+        float py = y - player.getCenterY();
+        float dx = Math.abs(px);
+        float dy = Math.abs(py);
+
+        // already overlapping, if the racket moved into the ball for instance
+        if (dx < halfWidth + RADIUS && dy < halfHeight + RADIUS) {
+            if (dx < halfWidth || dy < halfHeight) return 0;
+            float cornerDistanceSq = (dx - halfWidth) * (dx - halfWidth) + (dy - halfHeight) * (dy - halfHeight);
+            if (cornerDistanceSq < RADIUS * RADIUS) return 0;
+        }
+
+        // slabs of the bounding box, vx can't be 0
+        float enter = (-(halfWidth + RADIUS) * Math.signum(vx) - px) / vx;
+        float exit = ((halfWidth + RADIUS) * Math.signum(vx) - px) / vx;
+        if (vy != 0) {
+            enter = Math.max(enter, (-(halfHeight + RADIUS) * Math.signum(vy) - py) / vy);
+            exit = Math.min(exit, ((halfHeight + RADIUS) * Math.signum(vy) - py) / vy);
+        } else if (dy >= halfHeight + RADIUS) return NO_IMPACT;
+        if (exit <= 0 || enter > maxTime || enter >= exit) return NO_IMPACT;
+        // the ball may already be in the bounding box, next to a corner
+        enter = Math.max(enter, 0);
+
+        // where the ball enters the bounding box, only a corner has to be tested again
+        float ex = px + vx * enter;
+        float ey = py + vy * enter;
+        if (Math.abs(ex) <= halfWidth || Math.abs(ey) <= halfHeight) return enter;
+        float cx = px - Math.signum(ex) * halfWidth;
+        float cy = py - Math.signum(ey) * halfHeight;
+        float a = vx * vx + vy * vy;
+        float b = cx * vx + cy * vy;
+        float c = cx * cx + cy * cy - RADIUS * RADIUS;
+        float discriminant = b * b - a * c;
+        if (discriminant <= 0) return NO_IMPACT; // misses the corner
+        float t = (-b - (float) Math.sqrt(discriminant)) / a;
+        return (t > maxTime || t >= exit) ? NO_IMPACT : Math.max(enter, t);
+    }
+
+    /**
+     * Makes the ball bounce on what {@link #nextImpact(float)} found
+     */
+    private void bounce() {
+        switch (impact) {
+            case UPPER_WALL -> {
+                speed.setY(-speed.getY());
+                position.setY(RADIUS);
             }
-            // trickier case when the ball is in a "collision corner"
-            float cornerDistanceSq = (dx - halfWidth)*(dx - halfWidth) + (dy - halfHeight)*(dy - halfHeight);
-            if (cornerDistanceSq < RADIUS * RADIUS) {
-                handleRacketCollision(c, player.side);
-                return;
+            case LOWER_WALL -> {
+                speed.setY(-speed.getY());
+                position.setY(Game.HEIGHT - RADIUS);
             }
+            case PLAYER1 -> handleRacketCollision(master.player1.getCenterX(), master.player1.getCenterY(),
+                    master.player1.side);
+            case PLAYER2 -> handleRacketCollision(master.player2.getCenterX(), master.player2.getCenterY(),
+                    master.player2.side);
         }
     }
 
-    private void handleRacketCollision(Vector2D racketCenter, int side) {
+    private void handleRacketCollision(float racketCenterX, float racketCenterY, int side) {
+        bounceOnRacket(position, speed, racketCenterX, racketCenterY, side);
+        hitCount++;
+
+        // we update the computer once, for performance
+        master.retargetComputers();
+    }
+
+    /**
+     * Bounces a ball that touches a racket. It's static so the balls of a {@link game.arena.BallArena} bounce the
+     * same way.
+     * @param position the center of the ball, only its x is changed, to get the ball out of the racket
+     * @param speed the speed of the ball, replaced by the speed after the bounce
+     * @param racketCenterX the x of the center of the racket
+     * @param racketCenterY the y of the center of the racket
+     * @param side the side of the racket, 1 for the left one and -1 for the right one
+     */
+    public static void bounceOnRacket(Vector2D position, Vector2D speed, float racketCenterX, float racketCenterY,
+                                      int side) {
         // the ball takes an angle depending on where it hits : 0 at the center, 60° at the edge
-        double angle = Math.toRadians(60 * 2 * (position.getY() - racketCenter.getY()) / Racket.HEIGHT);
+        double angle = Math.toRadians(60 * 2 * (position.getY() - racketCenterY) / Racket.HEIGHT);
         // the norm is used so the ball's speed feels the same as before
         double norm = speed.norm();
 
@@ -77,34 +629,94 @@ public class Ball implements Renderable, Updatable {
         // the norm is "redistributed" to the coordinates depending on the angle
         speed.set((float) (norm * Math.cos(angle)), (float) (norm * Math.sin(angle)));
         // we get the ball back outside the racket to avoid a collision mayhem
-        float cx = racketCenter.getX();
-        position.setX(cx + ((float) Racket.WIDTH / 2 + RADIUS) * side);
+        position.setX(racketCenterX + ((float) Racket.WIDTH / 2 + RADIUS) * side);
         /*
         the speed is always positive at the end of the calculations, so we multiply X by 1
         or -1 to make it go toward the right side (which can be the left side !)
         */
         speed.multiplyXBy(side);
-
-        // we update the computer once, for performance
-        for (ComputerPlayer c : master.getComputers()) {
-            c.setTargetY.accept(this);
-        }
     }
 
     @Override
     public void render(Graphics g) {
+        render(g, position.getX(), position.getY());
+    }
+
+    /**
+     * Draws the ball at the given position instead of its own, used to render from a {@link MatchSnapshot}.
+     * @param g the Graphics object used to render
+     * @param x the x coordinate of the center of the ball
+     * @param y the y coordinate of the center of the ball
+     */
+    public void render(Graphics g, float x, float y) {
         //g.setColor(Color.WHITE);
-        //g.fillOval((int) this.position.getX() - RADIUS, (int) this.position.getY() - RADIUS, RADIUS * 2, RADIUS * 2);
-        g.drawImage(sprite, (int) position.getX() - RADIUS, (int) position.getY() - RADIUS, null);
+        //g.fillOval((int) x - RADIUS, (int) y - RADIUS, RADIUS * 2, RADIUS * 2);
+        g.drawImage(Sprite.IMAGE, (int) x - RADIUS, (int) y - RADIUS, null);
     }
 
     @Override
     public void update() {
-            this.position.add(speed);
-            testCollisions();
+        if (fixedPoint) {
+            if (!moveFixedStraight()) moveFixed();
+        } else move();
+    }
+
+    public int getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return the number of ints {@link #saveState(int[], int)} writes
+     */
+    static int stateSize() {
+        return 10;
+    }
+
+    /**
+     * Writes the position, the speed, the hit count and the fixed-point physics into a buffer, see
+     * {@link MatchState}.
+     * @param buffer where the state is written
+     * @param offset the index of the first int written
+     * @return the index following the last int written
+     */
+    int saveState(int[] buffer, int offset) {
+        buffer[offset++] = Float.floatToRawIntBits(position.getX());
+        buffer[offset++] = Float.floatToRawIntBits(position.getY());
+        buffer[offset++] = Float.floatToRawIntBits(speed.getX());
+        buffer[offset++] = Float.floatToRawIntBits(speed.getY());
+        buffer[offset++] = hitCount;
+        buffer[offset++] = fixedPoint ? 1 : 0;
+        buffer[offset++] = fixedX;
+        buffer[offset++] = fixedY;
+        buffer[offset++] = fixedSpeedX;
+        buffer[offset++] = fixedSpeedY;
+        return offset;
+    }
+
+    /**
+     * Reads a state written by {@link #saveState(int[], int)}.
+     * @param buffer where the state is read
+     * @param offset the index of the first int read
+     * @return the index following the last int read
+     */
+    int restoreState(int[] buffer, int offset) {
+        position.set(Float.intBitsToFloat(buffer[offset]), Float.intBitsToFloat(buffer[offset + 1]));
+        speed.set(Float.intBitsToFloat(buffer[offset + 2]), Float.intBitsToFloat(buffer[offset + 3]));
+        hitCount = buffer[offset + 4];
+        fixedPoint = buffer[offset + 5] != 0;
+        fixedX = buffer[offset + 6];
+        fixedY = buffer[offset + 7];
+        fixedSpeedX = buffer[offset + 8];
+        fixedSpeedY = buffer[offset + 9];
+        return offset + 10;
     }
 
     public int touchDown() {
+        if (fixedPoint) {
+            if (fixedX <= FIXED_RADIUS) return -1;
+            if (fixedX >= FixedPoint.fromInt(Game.WIDTH - RADIUS)) return 1;
+            return 0;
+        }
         if (this.position.getX() <= RADIUS) return -1;
         if (this.position.getX() >= Game.WIDTH - RADIUS) return 1;
         else return 0;
@@ -1,215 +1,306 @@
 package game;
 
-import java.util.Arrays;
-import java.util.Random;
-import java.util.function.Consumer;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class ComputerPlayer extends Racket {
     /**
-     * This enum declares constants that are used to define how good the computer is at the game.
+     * This enum declares constants that are used to define how good the computer is at the game. LEARNED doesn't
+     * calculate anything, it plays the moves of a policy learned by self-play, see {@link QPolicy}, or like SMART if
+     * there is no policy. The ordinals are recorded, so new difficulties go last.
      */
-    public enum Difficulty {THICKHEAD, OKAY, SMART, GOD}
+    public enum Difficulty {THICKHEAD, OKAY, SMART, GOD, LEARNED}
 
-    /**
-     * The YFunction interface is a nested interface used to generate an object (stored in
-     * {@link ComputerPlayer#YSupplier}) that holds one float value or an array of float values with an extra field that
-     * take into account the number of time the method {@link YFunction#getY()} is called.
-     * This interface has 2 factory methods, one for the {@code float} case and one for the {@code float[]} case,
-     * {@link YFunction#constant} and {@link YFunction#sequence} respectively.
-     * The objective of this interface is to avoid declaring fields with only a hypothetical use while conserving the
-     * diversity of strategies and encapsulate the logic of the selection of the float value. The result is that the
-     * caller of getY() can't make the difference between a constant instance and a sequence instance.
-     * @see ComputerPlayer
-     */
-    private interface YFunction {
-        /**
-         * The key to uniformity of the YFunction and its contract. Will return one float that the instance holds,
-         * depending on the instance.
-         * @return a float, depending on the instance : either y for a constant instance or y[i] with i the number of
-         * getY() calls divided by 10 for a sequence instance
-         */
-        float getY();
-
-        /**
-         * Generates a YFunction object that will return y. The goal is simply to hold the float and maintain
-         * uniformity with the sequence instance.
-         * @param y the float that will be stored upon closure and can be accessed via getY()
-         * @return a YFunction which method getY() will return {@code y} as is
-         */
-        static YFunction constant(float y) {
-            return () -> y;
-        }
-
-        /**
-         * Generates a YFunction object that will return y[i] with i being the number of calls of this function divided
-         * by 10 (and truncated). It takes care automatically of the index but it's not possible to change the index from
-         * outside the instance. If the number of call exceeds y.length * 10, the float at the last index of y is
-         * returned.
-         * @param y the float sequence
-         * @return a YFunction object which method getY() will return {@code y[i]} with i incrementing every 10 calls
-         */
-        static YFunction sequence(float[] y) {
-            return new YFunction() {
-                private int tick = 0;
-                @Override
-                public float getY() {
-                    int i = Math.min(tick++ / 10, y.length - 1);
-                    return y[i];
-                }
-
-            };
-        }
-    }
-
-    /**
-     * The function objects are here to tidy up codes. Upon construction, the ComputerPlayer chooses strategies
-     * depending on its own difficulty setting and register them so they can be used during the match.
-     */
-    public Consumer<Ball> setTargetY;
-    public Runnable computerMove;
     /**
      * Randomness is here to prevent bots from
      *  - being too predictable
      *  - always making the same moves
      *  - being unbeatable (for the GOD difficulty)
-     * Only {@link Random#nextGaussian()} is used since its behavior was arbitrarily regarded as the most relevant
+     * Only a gaussian is used since its behavior was arbitrarily regarded as the most relevant. It's seeded, so a
+     * recorded match can be replayed with the same moves. The gaussians come from a {@link SplitMix64}, whose state
+     * can be saved and restored.
+     */
+    private final SplitMix64 random = new SplitMix64(0);
+    private long seed;
+    private final Difficulty difficulty;
+    /**
+     * The most targets a computer can hold, enough for a ball crossing the whole field at the slowest speed it can have
+     */
+    static final int MAX_TARGETS = 256;
+    /**
+     * The y the computer goes to. There is either one target, which it goes to and then stays at, or a sequence of
+     * targets where the i-th one is used between the (10 * i)-th and the (10 * i + 9)-th reading of the target, and
+     * the last one once the sequence is over. A sequence makes the computer hesitate, as if it couldn't calculate far
+     * enough. The array is created once, so changing the targets never allocates.
+     * @see #targetY()
+     */
+    private final float[] targets = new float[MAX_TARGETS];
+    private int targetCount;
+    /**
+     * How many times the target was read since the targets changed
+     */
+    private int targetReads;
+    /**
+     * Chooses where GOD hits the ball, null for the other difficulties
      */
-    private final Random random = new Random();
+    private final LookaheadPlanner planner;
     /**
-     * This object is here to supply either always the same float or a float of index i from an array, with i increasing
-     * with the number of call for the {@link YFunction#getY()} method.
-     * This object changes everytime a calculation must be done since what it supplies is defined by closure.
+     * The standard deviation of the error of GOD around its plan, in pixels, so it still misses once in a while
      */
-    private YFunction YSupplier;
+    private static final float GOD_NOISE = 2;
+    /**
+     * The moves of LEARNED, loaded by {@link #policy()} the first time they're needed, null for the other difficulties
+     * or if there is no policy
+     */
+    private QPolicy policy;
+    private boolean policyLoaded;
+    /**
+     * The ball LEARNED looks at every tick
+     */
+    private Ball followed;
+    /**
+     * Where the ball goes when it has no match, created the first time it's needed
+     */
+    private TrajectoryPredictor ownPredictor;
 
     public ComputerPlayer(int side, Difficulty difficulty) {
+        this(side, difficulty, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * @param side either 1 for left or -1 for right
+     * @param difficulty how good the computer is at the game
+     * @param seed the seed of the randomness of the computer, the same seed gives the same moves
+     */
+    public ComputerPlayer(int side, Difficulty difficulty, long seed) {
         super(side);
-        // sets up the strategies
+        this.difficulty = difficulty;
+        this.planner = (difficulty == Difficulty.GOD) ? new LookaheadPlanner(side) : null;
+        reset(seed);
+    }
+
+    /**
+     * Makes the computer choose where to go from the current position and speed of the ball, depending on its
+     * difficulty. Called when the ball is served and when it hits a racket. It doesn't allocate anything, the targets
+     * are written in an array created with the computer. LEARNED has no target, it only remembers the ball, since it
+     * decides every tick where to go. Where the ball goes comes from the predictor of the match, see
+     * {@link TrajectoryPredictor}.
+     * @param ball the ball, which may use either physics
+     */
+    public void setTargetY(Ball ball) {
+        TrajectoryPredictor predictor = predictor(ball);
         switch (difficulty) {
             case THICKHEAD -> {
-
-                computerMove = this::goToTargetY;
-                //TODO : delete it, useless
-
-                setTargetY = (ball) -> {
-                    Vector2D p = ball.position;
-                    Vector2D s = ball.speed;
-                    if (calculateHitTime(p.getX(), s.getX()) > 0) {
-                    YSupplier = YFunction.sequence(calculateMovements(
-                            p,
-                            s,
-                            0
-                    ));
-                    } else YSupplier = YFunction.constant(YSupplier.getY()); // just stay where it hit last
-                };
+                int hitTime = predictor.predict(ball, this);
+                if (hitTime > 0) calculateMovements(ball, hitTime, predictor.predictedY(), 0);
+                else setTarget(targetY()); // just stay where it hit last
             }
             case OKAY -> {
+                int hitTime = predictor.predict(ball, this);
+                if (hitTime > 0) calculateMovements(ball, hitTime, predictor.predictedY(), 100);
+                else setTarget(Game.HEIGHT / 2f - getOffset()); // goes back to center
+            }
+            case SMART -> {
+                predictor.predict(ball, this);
+                setTarget(predictor.predictedY() - getOffset());
+            }
+            case GOD -> {
+                int hitTime = predictor.predict(ball, this);
+                float intercept = predictor.predictedY();
+                // the planner needs the opponent, a ball alone is only caught like SMART does
+                float plan = (hitTime > 0 && ball.master != null)
+                        ? planner.plan(ball, this, opponent(ball.master), hitTime, intercept) : Float.NaN;
+                if (Float.isNaN(plan)) setTarget(intercept - getOffset());
+                else setTarget(plan + (float) (random.nextGaussian() * GOD_NOISE));
+            }
+            case LEARNED -> {
+                followed = ball;
+                // without a policy, it plays like SMART
+                if (policy() == null) {
+                    predictor.predict(ball, this);
+                    setTarget(predictor.predictedY() - getOffset());
+                }
+            }
+        }
+    }
+
+    /**
+     * Puts the computer back in the state it had when it was created, with a new seed, for instance when a new match
+     * starts. A computer reset with a seed plays exactly like a computer created with that seed.
+     * @param seed the new seed
+     */
+    public final void reset(long seed) {
+        this.seed = seed;
+        random.setState(seed);
+        setTarget((Game.HEIGHT - HEIGHT) / 2f);
+    }
 
-                computerMove = this::goToTargetY;
+    public long getSeed() {
+        return seed;
+    }
 
-                setTargetY = (ball) -> {
-                    Vector2D p = ball.position;
-                    Vector2D s = ball.speed;
-                    if (calculateHitTime(p.getX(), s.getX()) > 0)
-                        YSupplier = YFunction.sequence(calculateMovements(p, s, 100));
-                    else YSupplier = YFunction.constant(Game.HEIGHT / 2f - getOffset()); // goes back to center
+    public Difficulty getDifficulty() {
+        return difficulty;
+    }
 
-                };
-            }
+    /**
+     * Moves the racket toward its target, once a tick. Every difficulty moves the same way, they only choose their
+     * targets differently. The target is read twice, as it always was, since it decides when a sequence moves on to
+     * its next target and the recorded matches depend on it. LEARNED moves as its policy says instead, from where the
+     * ball is this tick.
+     */
+    public void goToTargetY() {
+        QPolicy policy = policy();
+        if (policy != null) {
+            if (followed != null) y += policy.move(followed, this);
+            return;
+        }
+        int last = targetCount - 1;
+        int reads = targetReads;
+        if (y < targets[Math.min(reads / 10, last)]) y += SPEED;
+        if (y > targets[Math.min((reads + 1) / 10, last)]) y -= SPEED;
+        targetReads = reads + 2;
+    }
+
+    /**
+     * Makes LEARNED look at the ball of the match, even before it's served, so it plays from a restored state too.
+     */
+    void follow(Ball ball) {
+        followed = ball;
+    }
+
+    /**
+     * @return true if the moves of the computer depend on the ball every tick, so they can't be skipped by
+     * {@link #skipMoves(long)}
+     */
+    boolean decidesEveryTick() {
+        return policy() != null;
+    }
+
+    /**
+     * @return the policy of LEARNED, mapped the first time a LEARNED computer needs it, or null for the other
+     * difficulties and if the policy can't be read
+     */
+    private QPolicy policy() {
+        if (!policyLoaded) {
+            policy = (difficulty == Difficulty.LEARNED) ? QPolicy.shared() : null;
+            policyLoaded = true;
+        }
+        return policy;
+    }
 
-            case SMART, GOD -> {
-
-                computerMove = this::goToTargetY;
-
-                setTargetY = (ball) -> {
-                    YSupplier = YFunction.constant(
-                            calculateBallPosition(
-                                    ball.position.getY(),
-                                    ball.speed.getY(),
-                                    calculateHitTime(
-                                            ball.position.getX(),
-                                            ball.speed.getX()
-                                    )
-                            ) - getOffset()
-                    );
-                };
+    /**
+     * Does the same as calling {@link #goToTargetY()} then {@link #update()} for the given number of ticks, but in a
+     * few steps. The racket moves by 1 toward its target every tick, and since it starts in the middle of the field
+     * and {@code SPEED} is 1, its y is always an integer : it goes to the largest integer below the target (going
+     * past it makes it go back) within the scroll limits, then stays there. So while the target doesn't change, the
+     * moves of any number of ticks are calculated at once.
+     * @param ticks the number of ticks to skip
+     */
+    void skipMoves(long ticks) {
+        while (ticks > 0) {
+            int index = Math.min(targetReads / 10, targetCount - 1);
+            if (y != Math.rint(y) || y < UP_SCROLL_LIMIT || y > DOWN_SCROLL_LIMIT || (targetReads & 1) != 0) {
+                goToTargetY();
+                update();
+                ticks--;
+                continue;
             }
+            // the target is read twice a tick, the next one of the sequence comes after 10 readings
+            long sameTarget = (index < targetCount - 1) ? (10L * (index + 1) - targetReads) / 2 : ticks;
+            int chunk = (int) Math.min(Math.min(ticks, sameTarget), Integer.MAX_VALUE / 4);
+            double goal = Math.min(DOWN_SCROLL_LIMIT, Math.max(UP_SCROLL_LIMIT, Math.floor(targets[index])));
+            double distance = goal - y;
+            y += (float) (Math.signum(distance) * Math.min(Math.abs(distance), chunk));
+            targetReads += 2 * chunk;
+            ticks -= chunk;
         }
     }
 
-    public void goToTargetY() {
-        if (y < YSupplier.getY()) y += SPEED;
-        if (y > YSupplier.getY()) y -= SPEED;
+    /**
+     * Reads the current target, the caller can't make the difference between a single target and a sequence.
+     * @return the only target, or the target of index i in the sequence with i the number of readings divided by 10
+     */
+    private float targetY() {
+        int i = Math.min(targetReads++ / 10, targetCount - 1);
+        return targets[i];
     }
 
+    /**
+     * Replaces the targets by a single one.
+     * @param y the y to go to
+     */
+    private void setTarget(float y) {
+        targets[0] = y;
+        targetCount = 1;
+        targetReads = 0;
+    }
 
-    private float[] calculateMovements(Vector2D position, Vector2D speed, int capCalculations) {
-        float y0 = position.getY();
-        float vy = speed.getY();
+    /**
+     * @return the number of ints {@link #saveState(int[], int)} writes, at most
+     */
+    static int stateSize() {
+        return Racket.stateSize() + 4 + MAX_TARGETS;
+    }
+
+    @Override
+    int saveState(int[] buffer, int offset) {
+        offset = super.saveState(buffer, offset);
+        long splitMix = random.getState();
+        buffer[offset++] = (int) (splitMix >>> 32);
+        buffer[offset++] = (int) splitMix;
+        buffer[offset++] = targetCount;
+        buffer[offset++] = targetReads;
+        for (int i = 0; i < targetCount; i++) buffer[offset++] = Float.floatToRawIntBits(targets[i]);
+        return offset;
+    }
+
+    @Override
+    int restoreState(int[] buffer, int offset) {
+        offset = super.restoreState(buffer, offset);
+        random.setState(((long) buffer[offset++] << 32) | (buffer[offset++] & 0xFFFFFFFFL));
+        targetCount = buffer[offset++];
+        targetReads = buffer[offset++];
+        for (int i = 0; i < targetCount; i++) targets[i] = Float.intBitsToFloat(buffer[offset++]);
+        return offset;
+    }
+
+
+    /**
+     * Fills the targets with the positions of the ball, as far as the computer can foresee. The ball must be headed to
+     * the goal of this.
+     * @param ball the ball, which may use either physics
+     * @param hitTime in how many ticks the ball reaches the goal of this
+     * @param intercept the y of the ball then
+     * @param capCalculations how far the computer can foresee, in pixels
+     */
+    private void calculateMovements(Ball ball, int hitTime, float intercept, int capCalculations) {
         // the offset makes the computer hits the ball on average in the center with a bit of random variation
         float offset = getOffset();
-        // time in ticks at which the ball reaches the goal
-        int tf = calculateHitTime(position.getX(), speed.getX());
-        if (tf < 0) {
-            return new float[] {Game.HEIGHT / 2f - offset};
-            // quick fix for the negative array size issue, might be replaced in the future
-        }
-        // the length of the positions should be able to run 1/10 of the ticks between t = 0 and t = tf, and we add 1 to
-        // ensure it's enough with the rounds up
-        float[] positions = new float[tf / 10 + 1];
         /*
-        this loop justifies the use of an array : the goal is to make the
+        the targets are an array : the goal is to make the
         computer look more hesitant and human-like when it can't calculate
         far enough. It also gives it a chance without running yet another
         calculation. capCalculations is actually how far in the future
         the computer can foresee, in pixels.
          */
-        if (tf > capCalculations) {
-            float t;
-            float vx = speed.getX();
-            for(int i = 0; i < positions.length; i++) {
-                t = Math.min(
-                        capCalculations / vx + i * 10,
-                        tf
-                );
-                positions[i] = calculateBallPosition(y0, vy, t) - offset;
-            }
-        }
-        else Arrays.fill(positions, calculateBallPosition(y0, vy, tf) - offset);
-        return positions;
+        targetCount = TrajectoryPredictor.targets(ball, hitTime, intercept, capCalculations, targets, offset);
+        targetReads = 0;
     }
 
     /**
-     * Calculates the position of the ball with the bounces at the time t.
-     * Works with negative time, theoretically (although that might not be very useful).
-     * @param y0 y position at t = 0
-     * @param vy vertical speed of the ball
-     * @param t time in tick, t = 0 being the current tick
-     * @return y(t), with (exact) calculations of the bounces.
+     * @return the predictor of the match of the ball, or the own predictor of this for a ball without a match
      */
-    private float calculateBallPosition(float y0, float vy, float t) {
-        // the distance of the height accessible to the center of the ball
-        float h = Game.HEIGHT - 2 * Ball.RADIUS;
-        // the period of the bounce (at the end of which the ball is at the same y with the same speed as
-        // at the beginning)
-        float p = 2 * h;
-        float yDist = y0 + vy * t;
-        float m = yDist % p;
-        if (m < 0) m += p;
-        float yInside = (m <= h) ? m : (p - m);
-        // we add the radius of the ball because the calculations is off by the radius of the ball
-        return yInside + Ball.RADIUS;
+    private TrajectoryPredictor predictor(Ball ball) {
+        if (ball.master != null) return ball.master.predictor;
+        if (ownPredictor == null) ownPredictor = new TrajectoryPredictor();
+        return ownPredictor;
     }
 
     /**
-     * Calculates at what time the ball will hit the goal of this (in ticks).
-     * @param x0 the x coord of the ball, currently
-     * @param vx the horizontal velocity of the ball
-     * @return an int that represents the number of ticks before the ball hits the goal
+     * @return the other racket of the match
      */
-    private int calculateHitTime(float x0, float vx) {
-        float t = (x - x0 + Ball.RADIUS * side) / vx;
-        return (int) t;
+    private Racket opponent(MatchManager match) {
+        return (match.player1 == this) ? match.player2 : match.player1;
     }
 
     private float getOffset() {
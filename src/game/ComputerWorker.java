@@ -0,0 +1,288 @@
+package game;
+
+import game.metrics.Counter;
+import game.metrics.Histogram;
+import game.metrics.MetricsRegistry;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Makes the computers of a match choose their targets in a thread of their own, so a computer that thinks a while (GOD
+ * and its planner) never delays a tick. Set with {@link MatchManager#setComputerWorker(ComputerWorker)}.
+ * <p>
+ * When the ball is served or hits a racket, the tick thread doesn't call {@link ComputerPlayer#setTargetY(Ball)} : it
+ * copies the ball and the computers into an event, a record of ints in a ring created upfront, and goes on. The worker
+ * keeps a headless copy of the match where the same computers are restored from the latest event, calls
+ * {@code setTargetY} on them, and hands their state back through a {@link SnapshotExchange}.
+ * <p>
+ * Only the latest event matters, so the tick thread never waits for the worker nor drops an event : it always writes
+ * the next slot of the ring, over the oldest event, and the events the worker didn't take in time are skipped. Each
+ * slot has a version, odd while the slot is written, so the worker copies the latest event and then checks that it
+ * wasn't overwritten meanwhile (a seqlock), and copies it again if it was. There is a single producer and a single
+ * consumer, so nothing needs a lock nor a compare-and-set.
+ * <p>
+ * The answer to an event is due at the tick after it, {@link #DEADLINE_TICKS}, which is when the computers would have
+ * used their new targets anyway. If it's there in time, the computers take it at the start of the tick and play
+ * exactly as they would have without the worker, their randomness included. If it's late, they keep their previous
+ * targets, the late answer is dropped and the deadline is counted as missed. So a match with a worker is only the same
+ * as without it if no deadline is missed, which is why the recorded, replayed and headless matches don't use one.
+ * <p>
+ * The metrics are {@code ai.events}, {@code ai.plans}, {@code ai.deadlines.missed}, {@code ai.events.skipped} (when
+ * a newer event came before the worker took it) and the histogram {@code ai.plan.duration}.
+ */
+public final class ComputerWorker {
+    /**
+     * The number of ticks the worker has to answer an event
+     */
+    public static final int DEADLINE_TICKS = 1;
+    /**
+     * The number of events the ring holds, a power of 2
+     */
+    private static final int CAPACITY = 16;
+    private static final int SEQ = 0, MASK = 1, KIND1 = 2, KIND2 = 3, SEED_HIGH = 4, SEED_LOW = 5, FLAGS = 6,
+            GENERATION = 7, PLAYER1_X = 8, PLAYER1_Y = 9, PLAYER2_X = 10, PLAYER2_Y = 11, HEADER_SIZE = 12;
+    private static final int FIXED_POINT = 1;
+    /**
+     * The size of an event : the header, the ball, then the state of both computers
+     */
+    private static final int EVENT_SIZE = HEADER_SIZE + Ball.stateSize() + 2 * ComputerPlayer.stateSize();
+    private static final VarHandle TAIL, VERSIONS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            TAIL = lookup.findVarHandle(ComputerWorker.class, "tail", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * The answer of the worker to an event : the state of the computers once they chose their targets
+     */
+    static final class Plan {
+        int seq;
+        int generation;
+        int mask;
+        final int[] states = new int[2 * ComputerPlayer.stateSize()];
+    }
+
+    private final int[] events = new int[CAPACITY * EVENT_SIZE];
+    /**
+     * The version of each slot of the ring, odd while the tick thread writes the slot
+     */
+    private final int[] versions = new int[CAPACITY];
+    /**
+     * The number of events put by the tick thread, written by the tick thread only
+     */
+    @SuppressWarnings("unused")
+    private volatile long tail;
+    private final SnapshotExchange<Plan> plans = new SnapshotExchange<>(Plan::new);
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    // only accessed by the tick thread
+    private int tick;
+    private int lastSeq;
+    private int lastDeadline;
+    /**
+     * Whether the latest event was answered in time, or counted as missed
+     */
+    private boolean settled = true;
+
+    // only accessed by the worker
+    /**
+     * The copy of the match where the computers choose their targets
+     */
+    private final MatchManager mirror = MatchManager.headless();
+    /**
+     * The latest event, copied out of the ring
+     */
+    private final int[] event = new int[EVENT_SIZE];
+    /**
+     * The number of events put by the tick thread when the worker took the latest one
+     */
+    private long taken;
+    private int mirrorGeneration = -1;
+    private int mirrorKinds, mirrorFlags;
+    private long mirrorSeed;
+
+    private final Counter eventCount, planCount, missed, skipped;
+    private final Histogram planDuration;
+
+    /**
+     * Starts the worker, a daemon thread that sleeps while there is no event.
+     * @param metrics where the plans, the missed deadlines and the duration of the plans are counted
+     */
+    public ComputerWorker(MetricsRegistry metrics) {
+        eventCount = metrics.counter("ai.events");
+        planCount = metrics.counter("ai.plans");
+        missed = metrics.counter("ai.deadlines.missed");
+        skipped = metrics.counter("ai.events.skipped");
+        planDuration = metrics.histogram("ai.plan.duration");
+        thread = new Thread(this::work, "Computer worker");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the worker, the events not answered yet are forgotten.
+     */
+    public void close() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Tick thread. Sends the ball and the computers of the match to the worker, instead of calling
+     * {@link ComputerPlayer#setTargetY(Ball)}. It doesn't allocate anything nor waits for the worker, the event is
+     * written over the oldest one of the ring.
+     * @param match the match, whose ball just got served or hit a racket
+     * @param mask the computers that choose a target, 1 for the player 1 and 2 for the player 2
+     */
+    void submit(MatchManager match, int mask) {
+        long t = tail;
+        int seq = lastSeq + 1;
+        // the previous event is replaced by this one, it's only missed if its deadline is already passed
+        if (!settled && tick - lastDeadline > 0) missed.increment();
+        lastSeq = seq;
+        lastDeadline = tick + DEADLINE_TICKS;
+        settled = false;
+        eventCount.increment();
+        int slot = (int) (t & (CAPACITY - 1));
+        int version = versions[slot];
+        VERSIONS.setOpaque(versions, slot, version + 1);
+        // the odd version is seen before any write of the slot
+        VarHandle.storeStoreFence();
+        int[] e = events;
+        int o = slot * EVENT_SIZE;
+        e[o + SEQ] = seq;
+        e[o + MASK] = mask;
+        e[o + KIND1] = MatchManager.playerKind(match.player1);
+        e[o + KIND2] = MatchManager.playerKind(match.player2);
+        e[o + SEED_HIGH] = (int) (match.getMatchSeed() >>> 32);
+        e[o + SEED_LOW] = (int) match.getMatchSeed();
+        e[o + FLAGS] = match.isFixedPoint() ? FIXED_POINT : 0;
+        e[o + GENERATION] = match.getGeneration();
+        e[o + PLAYER1_X] = Float.floatToRawIntBits(match.player1.x);
+        e[o + PLAYER1_Y] = Float.floatToRawIntBits(match.player1.y);
+        e[o + PLAYER2_X] = Float.floatToRawIntBits(match.player2.x);
+        e[o + PLAYER2_Y] = Float.floatToRawIntBits(match.player2.y);
+        int offset = match.ball.saveState(e, o + HEADER_SIZE);
+        if ((mask & 1) != 0) match.player1.saveState(e, offset);
+        if ((mask & 2) != 0) match.player2.saveState(e, offset + ComputerPlayer.stateSize());
+        VERSIONS.setRelease(versions, slot, version + 2);
+        TAIL.setRelease(this, t + 1);
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Tick thread. Called at the start of every tick where the rackets move : gives the computers the answer to the
+     * latest event if it came in time, and counts the deadline as missed once it's passed.
+     * @param match the match the events came from
+     */
+    void poll(MatchManager match) {
+        tick++;
+        if (plans.acquire()) {
+            Plan plan = plans.front();
+            if (!settled && plan.seq == lastSeq && plan.generation == match.getGeneration()
+                    && tick - lastDeadline <= 0) {
+                if ((plan.mask & 1) != 0) apply(match.player1, plan.states, 0);
+                if ((plan.mask & 2) != 0) apply(match.player2, plan.states, ComputerPlayer.stateSize());
+                settled = true;
+            }
+        }
+        if (!settled && tick - lastDeadline > 0) {
+            missed.increment();
+            settled = true;
+        }
+    }
+
+    /**
+     * Gives a computer the state it has in the mirror, except its position, which may have changed since the event
+     */
+    private static void apply(Racket computer, int[] states, int offset) {
+        float y = computer.y;
+        computer.restoreState(states, offset);
+        computer.y = y;
+    }
+
+    /**
+     * The loop of the worker : it sleeps until there is an event, then copies the latest one and answers it.
+     */
+    private void work() {
+        while (running) {
+            long t = (long) TAIL.getAcquire(this);
+            if (t == taken) {
+                LockSupport.park(this);
+                continue;
+            }
+            int slot = (int) ((t - 1) & (CAPACITY - 1));
+            int version = (int) VERSIONS.getAcquire(versions, slot);
+            if ((version & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            System.arraycopy(events, slot * EVENT_SIZE, event, 0, EVENT_SIZE);
+            // the copy is read before the version is checked again
+            VarHandle.loadLoadFence();
+            if ((int) VERSIONS.getOpaque(versions, slot) != version) continue; // overwritten during the copy
+            skipped.add(t - taken - 1);
+            taken = t;
+            plan();
+        }
+    }
+
+    private void plan() {
+        long start = System.nanoTime();
+        int[] e = event;
+        configureMirror(e);
+        mirror.player1.x = Float.intBitsToFloat(e[PLAYER1_X]);
+        mirror.player1.y = Float.intBitsToFloat(e[PLAYER1_Y]);
+        mirror.player2.x = Float.intBitsToFloat(e[PLAYER2_X]);
+        mirror.player2.y = Float.intBitsToFloat(e[PLAYER2_Y]);
+        int offset = mirror.ball.restoreState(e, HEADER_SIZE);
+        int mask = e[MASK];
+        Plan plan = plans.back();
+        plan.seq = e[SEQ];
+        plan.generation = e[GENERATION];
+        plan.mask = mask;
+        if ((mask & 1) != 0) {
+            mirror.player1.restoreState(e, offset);
+            ((ComputerPlayer) mirror.player1).setTargetY(mirror.ball);
+            mirror.player1.saveState(plan.states, 0);
+        }
+        if ((mask & 2) != 0) {
+            mirror.player2.restoreState(e, offset + ComputerPlayer.stateSize());
+            ((ComputerPlayer) mirror.player2).setTargetY(mirror.ball);
+            mirror.player2.saveState(plan.states, ComputerPlayer.stateSize());
+        }
+        plans.publish();
+        planCount.increment();
+        planDuration.record(System.nanoTime() - start);
+    }
+
+    /**
+     * Starts a match in the mirror with the computers and the physics of the match of the event, when it's not the
+     * same match as the previous event. A human is replaced by a computer that never plays, only its racket is used.
+     */
+    private void configureMirror(int[] e) {
+        int kinds = (e[KIND1] << 16) | (e[KIND2] & 0xFFFF);
+        long seed = ((long) e[SEED_HIGH] << 32) | (e[SEED_LOW] & 0xFFFFFFFFL);
+        if (e[GENERATION] == mirrorGeneration && kinds == mirrorKinds && e[FLAGS] == mirrorFlags
+                && seed == mirrorSeed) {
+            return;
+        }
+        mirrorGeneration = e[GENERATION];
+        mirrorKinds = kinds;
+        mirrorFlags = e[FLAGS];
+        mirrorSeed = seed;
+        mirror.setFixedPoint((mirrorFlags & FIXED_POINT) != 0);
+        mirror.startGame(difficulty(e[KIND1]), difficulty(e[KIND2]), seed);
+    }
+
+    private static ComputerPlayer.Difficulty difficulty(int kind) {
+        return (kind >= 0) ? ComputerPlayer.Difficulty.values()[kind] : ComputerPlayer.Difficulty.THICKHEAD;
+    }
+}
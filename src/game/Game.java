@@ -1,14 +1,21 @@
 package game;
 
+import game.arena.BallArena;
 import game.menu.Menu;
 import game.menu.MenuMaster;
 import game.menu.MainMenu;
 import game.keyHandling.InputHandler;
 import game.keyHandling.GameActions;
+import game.metrics.Counter;
+import game.metrics.Histogram;
+import game.metrics.MetricsRegistry;
+import game.simulation.MatchRecorder;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferStrategy;
+import java.io.IOException;
+import java.nio.file.Path;
 
 
 
@@ -24,14 +31,48 @@ public class Game extends Canvas implements Runnable, Updatable, Renderable, Men
     private final String NAME = "Pong Java Edition";
     public static final int HEIGHT = 500;
     public static final int WIDTH = 800;
-    private boolean running;
+    private volatile boolean running;
     private Runnable onStop;
     private final float TICK_DELAY_NS =  1E7f; // = 1,000,000,000 / 100 which makes it 100 Hz
     private final float FRAME_DELAY_NS = 1.6666667E7f; // = 1,000,000,000 / 60 which makes it 60 Hz
     private final boolean CAP_REFRESH_RATE = true;
     private Menu<MainMenuOptions> menu;
+    /**
+     * The main menu drawn by the render thread, which stands for {@link #menu}, and the id of the menu it stands for
+     */
+    private transient Menu<MainMenuOptions> shownMenu;
+    private int shownMenuId;
     private MatchManager matchManager;
     private InputHandler<GameActions> input;
+    private transient LoopScheduler scheduler;
+    /**
+     * Hands the state of the game from the simulation thread (this object's {@link #run()}) to the render thread
+     */
+    private final transient SnapshotExchange<MatchSnapshot> snapshots = new SnapshotExchange<>(MatchSnapshot::new);
+    private transient Thread renderThread;
+    /**
+     * Where the computers choose their targets, null if they do it during the ticks
+     */
+    private transient ComputerWorker computerWorker;
+    /**
+     * Records the matches if {@code pong.recordDir} is set, null otherwise
+     */
+    private transient MatchRecorder recorder;
+    private final transient MetricsRegistry metrics = new MetricsRegistry();
+    /**
+     * The {@link System#nanoTime()} of the oldest key event read by the ticks and not yet shown,
+     * {@link InputHandler#NO_EVENT} if there is none. Only accessed by the simulation thread.
+     */
+    private long pendingInputTime = InputHandler.NO_EVENT;
+    /**
+     * The {@link MatchSnapshot#inputTime} of the last frame presented, written by the render thread only, so the
+     * simulation thread knows the pending event was shown
+     */
+    private volatile long presentedInputTime = InputHandler.NO_EVENT;
+    /**
+     * How long a key event takes to be shown, from the event thread to the frame presented after the tick that read it
+     */
+    private final transient Histogram inputToFrame = metrics.histogram("input.to.frame");
 
     public Game() {
         // For now this doesn't do anything, but we need it
@@ -42,6 +83,16 @@ public class Game extends Canvas implements Runnable, Updatable, Renderable, Men
         this.onStop = onStop;
     }
 
+    /**
+     * Replaces the scheduler used by the simulation loop, should be called before {@link #start()}. If it's never
+     * called, a scheduler is created with the policy given by {@link LoopScheduler#policyFromProperties()}. The render
+     * thread uses its own scheduler, with the same policy.
+     * @param scheduler the scheduler that decides how the simulation loop waits
+     */
+    public void setLoopScheduler(LoopScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
     public void stop() {
         running = false;
     }
@@ -83,10 +134,52 @@ public class Game extends Canvas implements Runnable, Updatable, Renderable, Men
         else matchManager.update();
     }
 
+    /**
+     * Follows the key events through the tick that just ended : if it read some, how long the oldest one waited until
+     * the end of the tick is recorded, and it's kept as the pending event until a frame that shows this tick is
+     * presented. The events read while an event is pending are not followed to the frame, only the oldest one is.
+     * @param inputToTick where the time from the event to the end of the tick is recorded
+     */
+    private void trackInput(Histogram inputToTick) {
+        if (pendingInputTime != InputHandler.NO_EVENT && presentedInputTime == pendingInputTime) {
+            pendingInputTime = InputHandler.NO_EVENT;
+        }
+        long eventTime = input.getOldestEventTime();
+        if (eventTime == InputHandler.NO_EVENT) return;
+        inputToTick.record(System.nanoTime() - eventTime);
+        if (pendingInputTime == InputHandler.NO_EVENT) pendingInputTime = eventTime;
+    }
+
+    /**
+     * Publishes the state of the game for the render thread. Every field of the back snapshot is overwritten, as
+     * required by {@link SnapshotExchange}.
+     * @param tickTime the moment the tick that just ended was due, as given by {@link System#nanoTime()}
+     */
+    private void publishSnapshot(long tickTime) {
+        MatchSnapshot s = snapshots.back();
+        s.tickTime = tickTime;
+        s.inputTime = pendingInputTime;
+        matchManager.writeSnapshot(s);
+        s.matchShown = menu == null;
+        if (menu != null) s.setMenu(MatchSnapshot.MAIN_MENU, menu, 0);
+        snapshots.publish();
+    }
+
+    /**
+     * Draws the latest snapshot published by the simulation thread. Should only be called by the render thread, since
+     * it's the only one allowed to use the front snapshot. The entities are interpolated between their previous and
+     * current positions depending on how much time went by since the tick was due, in other words the fraction of a
+     * tick that remains unprocessed. It means the frames show the game one tick late, but the motion is smooth even
+     * if the frame rate is not a divisor of the tick rate. Once the frame is presented, the time since the key event
+     * the snapshot waits to show is recorded, the first time it's shown. Presented means {@code show()} returned, the
+     * screen may still show the frame a refresh later.
+     * @param unused not used, the Graphics object is generated from the buffer strategy
+     */
     @Override
     public void render(Graphics unused) {
         if (getBufferStrategy() == null) {
-            createBufferStrategy(3);
+            // 3 buffers unless told otherwise, since the frames are not synchronized with the ticks
+            createBufferStrategy(Integer.getInteger("pong.buffers", 3));
             return;
         }
         BufferStrategy bs = getBufferStrategy();
@@ -95,37 +188,82 @@ public class Game extends Canvas implements Runnable, Updatable, Renderable, Men
         g.setColor(Color.BLACK);
         g.clearRect(0,0, WIDTH, HEIGHT);
 
-        if (menu != null) menu.render(g);
-        else matchManager.render(g);
+        MatchSnapshot s = snapshots.front();
+        float alpha = Math.min(1, Math.max(0, (System.nanoTime() - s.tickTime) / TICK_DELAY_NS));
+        if (s.matchShown) matchManager.render(g, s, alpha);
+        else if (s.menu == MatchSnapshot.MAIN_MENU) shownMenu(s).render(g);
 
         g.dispose();
         bs.show();
+        if (s.inputTime != InputHandler.NO_EVENT && s.inputTime != presentedInputTime) {
+            inputToFrame.record(System.nanoTime() - s.inputTime);
+            presentedInputTime = s.inputTime;
+        }
     }
 
 
+    /**
+     * @return the main menu drawn for the menu of a snapshot, with its selection
+     */
+    private Menu<MainMenuOptions> shownMenu(MatchSnapshot s) {
+        if (shownMenu == null || shownMenuId != s.menuId) {
+            shownMenu = new MainMenu(null, null);
+            shownMenuId = s.menuId;
+        }
+        shownMenu.select(s.menuSelection);
+        return shownMenu;
+    }
+
     public void init() {
 
         input = new InputHandler<>(this);
+        input.setMetrics(metrics);
 
         matchManager = new MatchManager(this, input);
+        // the physics that plays the same on every platform, for the replays and the netplay
+        matchManager.setFixedPoint(Boolean.getBoolean("pong.fixedPoint"));
+        // every match is recorded if a directory is given, see MatchReplay to play them again
+        String recordDir = System.getProperty("pong.recordDir");
+        if (recordDir != null) {
+            recorder = new MatchRecorder(Path.of(recordDir));
+            matchManager.setObserver(recorder);
+        }
+        // the computers think in their own thread, except when the matches are recorded, since a target chosen late
+        // would make the replay differ
+        if (recordDir == null && !Boolean.getBoolean("pong.syncComputers")) {
+            computerWorker = new ComputerWorker(metrics);
+            matchManager.setComputerWorker(computerWorker);
+        }
+        // the multi-ball mode, with as many extra balls as given
+        int arenaBalls = Integer.getInteger("pong.arenaBalls", 0);
+        if (arenaBalls > 0) matchManager.setArena(BallArena.served(arenaBalls, System.nanoTime()));
 
         openMenu();
     }
 
+    /**
+     * The simulation loop : it only updates the game, at a fixed rate, and publishes a snapshot after each tick. The
+     * rendering is done by {@link #renderLoop()} in another thread, so a slow frame never delays a tick.
+     */
     @Override
     public void run() {
         long now;
         long tickTimer = System.nanoTime();
         float unprocessedTicks = 0;
-        int ticks = 0;
-        long frameTimer = System.nanoTime();
-        int frames = 0;
-        float unprocessedFrames = 0;
-        long debugTimer = System.currentTimeMillis();
-        int loops = 0;
-        boolean shouldRender = false;
+        boolean ticked = false;
+        long lastTickStart = 0;
+        Counter ticks = metrics.counter("ticks");
+        Counter loops = metrics.counter("loops");
+        Histogram tickDuration = metrics.histogram("tick.duration");
+        Histogram tickInterval = metrics.histogram("tick.interval");
+        Histogram ticksPerLoop = metrics.histogram("loop.ticks", "ticks");
+        Histogram inputToTick = metrics.histogram("input.to.tick");
 
         init();
+        if (scheduler == null) scheduler = new LoopScheduler(LoopScheduler.policyFromProperties());
+        publishSnapshot(tickTimer);
+        renderThread = new Thread(this::renderLoop, "Render thread");
+        renderThread.start();
 
         do {
             now = System.nanoTime();
@@ -133,46 +271,102 @@ public class Game extends Canvas implements Runnable, Updatable, Renderable, Men
             tickTimer = now;
 
             // tick loop, so we don't miss any
+            int ticksThisLoop = 0;
             while (unprocessedTicks >= 1) {
+                long tickStart = System.nanoTime();
+                if (ticked) tickInterval.record(tickStart - lastTickStart);
+                lastTickStart = tickStart;
+                ticked = true;
+
                 update();
-                ticks++;
+                trackInput(inputToTick);
+                // the tick was due when the unprocessed ticks reached 1, which is this many ticks ago
+                publishSnapshot(now - (long) ((unprocessedTicks - 1) * TICK_DELAY_NS));
+                tickDuration.record(System.nanoTime() - tickStart);
+                ticksThisLoop++;
                 unprocessedTicks--;
-                shouldRender = true;
             }
+            ticks.add(ticksThisLoop);
+            ticksPerLoop.record(ticksThisLoop);
 
-            // render loop, if we don't cap the refresh rate, it'll refresh as fast as possible
-            unprocessedFrames += (now - frameTimer) / FRAME_DELAY_NS;
-            frameTimer = now;
-            if ((unprocessedFrames >= 1 || !CAP_REFRESH_RATE) && shouldRender) {
-                render(null);
-                frames++;
-                shouldRender = false;
-                unprocessedFrames--;
-            }
+            scheduler.waitUntil(now + (long) ((1 - unprocessedTicks) * TICK_DELAY_NS));
 
-            if (System.currentTimeMillis() - debugTimer >= 1000) {
-                debugTimer += 1000;
-                System.out.println(ticks + " ticks and " + frames + " frames last second");
-                System.out.println(loops + "game loop last second");
-                ticks = frames = loops = 0;
-            }
-
-            try {
-                Thread.sleep(5);
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-
-            loops++;
+            loops.increment();
         } while (running);
+        // the window must not be disposed of while it's still drawn on
+        try {
+            renderThread.join();
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+        if (computerWorker != null) computerWorker.close();
+        // the match in progress is cut there, what's buffered of its recording is written
+        if (recorder != null) recorder.close();
         // At the end of the main loop, we call onStop to dispose of the window
         if (onStop != null) onStop.run();
         // if we can't stop the window, we throw an exception so the user is aware of what's going on
         else throw new RuntimeException("Couldn't dispose of the window, please close it manually.");
     }
 
+    /**
+     * The render loop, run in its own thread. It draws a frame once per {@code FRAME_DELAY_NS} if the refresh rate is
+     * capped, or as fast as possible otherwise. Since the entities are interpolated, a frame is drawn even if no tick
+     * happened since the last one.
+     */
+    private void renderLoop() {
+        LoopScheduler frameScheduler = new LoopScheduler(scheduler.getPolicy());
+        long nextFrame = System.nanoTime();
+        boolean drawn = false;
+        long lastFrameStart = 0;
+        Counter frames = metrics.counter("frames");
+        Histogram renderDuration = metrics.histogram("render.duration");
+        Histogram frameInterval = metrics.histogram("frame.interval");
+
+        while (running) {
+            long frameStart = System.nanoTime();
+            if (drawn) frameInterval.record(frameStart - lastFrameStart);
+            lastFrameStart = frameStart;
+            drawn = true;
+
+            snapshots.acquire();
+            render(null);
+            renderDuration.record(System.nanoTime() - frameStart);
+            frames.increment();
+
+            if (CAP_REFRESH_RATE) {
+                long now = System.nanoTime();
+                nextFrame += (long) FRAME_DELAY_NS;
+                // if a frame took too long, we don't try to catch up with a burst of frames
+                if (nextFrame < now) nextFrame = now;
+                frameScheduler.waitUntil(nextFrame);
+            }
+        }
+    }
+
+    /**
+     * @return the metrics of the game loops, which can be read at any moment
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Writes the metrics into the file given by the system property {@code pong.metricsFile}, if it's set. Called when
+     * the JVM shuts down, whether the game was quit from the menu or the window was closed.
+     */
+    private void dumpMetrics() {
+        String file = System.getProperty("pong.metricsFile");
+        if (file == null) return;
+        try {
+            metrics.dump(Path.of(file));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
     public void start() {
         running = true;
+        Runtime.getRuntime().addShutdownHook(new Thread(this::dumpMetrics, "Metrics dump"));
         new Thread(this).start();
     }
 
@@ -0,0 +1,118 @@
+package game;
+
+/**
+ * Chooses where the GOD computer hits the ball : rather than only catching it, it tries the positions its racket can
+ * reach before the ball arrives and keeps the one that sends the ball the farthest from what the opponent can reach.
+ * <p>
+ * Each position is tried with the real physics, on a copy of the ball in a headless match of its own (the sandbox) :
+ * the flight of the ball toward the racket is played once, with the racket out of the way, up to the moment the ball
+ * could touch it, then for each position the few ticks of the hit are played from there, so the angle is the one
+ * {@link Ball} would give. Where the ball goes once it's hit is predicted by {@link TrajectoryPredictor}.
+ * <p>
+ * A plan is bounded by {@link #STEP_BUDGET} steps of the sandbox, a step being a tick of the ball or a skip of
+ * straight moves. The budget is counted in steps rather than in nanoseconds so a match plays the same every time it's
+ * played with the same seed, and it's small enough for a plan to take a fraction of a millisecond.
+ */
+final class LookaheadPlanner {
+    /**
+     * The most positions of the racket tried in a plan
+     */
+    static final int MAX_CANDIDATES = 32;
+    /**
+     * The most steps of the sandbox in a plan, a few tens of µs. A plan usually takes a few hundred steps.
+     */
+    static final int STEP_BUDGET = 2048;
+    /**
+     * Where the racket of the planner waits while the ball flies toward it, so it's never hit before the ball is close
+     */
+    private static final float OUT_OF_THE_WAY = -10 * Game.HEIGHT;
+    private final MatchManager sandbox = MatchManager.headless();
+    private final Racket own, rival;
+    /**
+     * The state of the ball when the plan starts, then when it's close enough to the racket to hit it
+     */
+    private final int[] ballState = new int[Ball.stateSize()];
+
+    /**
+     * @param side the side of the computer that plans
+     */
+    LookaheadPlanner(int side) {
+        own = new Racket(side);
+        rival = new Racket(-side);
+        sandbox.player1 = (side == 1) ? own : rival;
+        sandbox.player2 = (side == 1) ? rival : own;
+    }
+
+    /**
+     * Finds the y the racket should go to so the ball is hit where the opponent can't reach it, or where it has the
+     * most trouble reaching it.
+     * @param ball the ball, headed to the goal of the racket
+     * @param racket the racket of the computer that plans
+     * @param opponent the other racket
+     * @param hitTime the number of ticks before the ball reaches the goal of the racket
+     * @param intercept the y of the ball when it reaches the goal of the racket
+     * @return the y of the racket, or NaN if no position it can reach hits the ball within the budget
+     */
+    float plan(Ball ball, Racket racket, Racket opponent, int hitTime, float intercept) {
+        own.x = racket.x;
+        own.y = OUT_OF_THE_WAY;
+        rival.x = opponent.x;
+        rival.y = opponent.y;
+        Ball copy = sandbox.ball;
+        ball.saveState(ballState, 0);
+        copy.restoreState(ballState, 0);
+        int hits = copy.getHitCount();
+
+        // the flight toward the racket, until the ball could touch it at the next tick
+        float reach = Racket.WIDTH / 2f + Ball.RADIUS + 2 * Math.abs(copy.speed.getX());
+        float centerX = racket.getCenterX();
+        int steps = 0;
+        while (Math.abs(copy.position.getX() - centerX) > reach) {
+            if (steps >= STEP_BUDGET || copy.touchDown() != 0) return Float.NaN;
+            if (copy.skipStraightMoves(Integer.MAX_VALUE) == 0) copy.update();
+            steps++;
+        }
+        copy.saveState(ballState, 0);
+        int hitTicks = (int) (2 * reach / Math.abs(copy.speed.getX())) + 2;
+
+        // the positions where the ball hits the face of the racket, rather than a corner, and that the racket reaches
+        // in time
+        int lowest = (int) Math.ceil(Math.max(Math.max(racket.UP_SCROLL_LIMIT, intercept - Racket.HEIGHT + 1),
+                racket.y - (hitTime - 2) * Racket.SPEED));
+        int highest = (int) Math.floor(Math.min(Math.min(racket.DOWN_SCROLL_LIMIT, intercept - 1),
+                racket.y + (hitTime - 2) * Racket.SPEED));
+        if (lowest > highest) return Float.NaN;
+        int candidates = Math.min(MAX_CANDIDATES, highest - lowest + 1);
+
+        float best = Float.NaN;
+        float bestMargin = Float.NEGATIVE_INFINITY;
+        float bestMove = Float.POSITIVE_INFINITY;
+        for (int i = 0; i < candidates && steps < STEP_BUDGET; i++) {
+            int y = (candidates == 1) ? lowest : lowest + (int) ((long) (highest - lowest) * i / (candidates - 1));
+            copy.restoreState(ballState, 0);
+            own.y = y;
+            boolean hit = false;
+            for (int t = 0; t < hitTicks && steps < STEP_BUDGET && !hit; t++, steps++) {
+                copy.update();
+                hit = copy.getHitCount() != hits;
+                if (copy.touchDown() != 0) break;
+            }
+            if (!hit) continue;
+
+            // how far the opponent is from the ball when the ball reaches its goal, beyond what it can move by then
+            int answerTime = TrajectoryPredictor.hitTime(copy, opponent);
+            float arrival = TrajectoryPredictor.ballY(copy, answerTime);
+            float top = Math.max(opponent.UP_SCROLL_LIMIT, arrival - Racket.HEIGHT - Ball.RADIUS);
+            float bottom = Math.min(opponent.DOWN_SCROLL_LIMIT, arrival + Ball.RADIUS);
+            float distance = Math.max(0, Math.max(top - opponent.y, opponent.y - bottom));
+            float margin = distance - answerTime * Racket.SPEED;
+            float move = Math.abs(y - racket.y);
+            if (margin > bestMargin || (margin == bestMargin && move < bestMove)) {
+                best = y;
+                bestMargin = margin;
+                bestMove = move;
+            }
+        }
+        return best;
+    }
+}
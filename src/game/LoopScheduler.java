@@ -0,0 +1,125 @@
+package game;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The LoopScheduler decides how the main loop waits for its next deadline (the next tick or the next frame). Instead
+ * of sleeping for a fixed amount of time, it parks the thread with {@link LockSupport#parkNanos(long)} until shortly
+ * before the deadline, then spins for the last few microseconds so it wakes up on time. How early the parking stops is
+ * decided by the {@link Policy} : the earlier it stops, the more precise (and the more CPU hungry) the loop is.
+ * The overshoot of {@code parkNanos} depends on the OS, so it's calibrated upon construction and corrected on the fly.
+ * <p>
+ * A scheduler is not thread-safe, each loop has its own : the simulation loop waits for its next tick, and the render
+ * thread has another scheduler with the same policy to wait for its next frame.
+ * <pre>{@code
+ * do {
+ *     while (tickIsDue) update();
+ *     scheduler.waitUntil(nextTick);
+ * } while (running);}</pre>
+ */
+public class LoopScheduler {
+
+    /**
+     * The policies are the trade-off between CPU usage and precision :
+     * <ul>
+     * <li>{@code POWER_SAVER} never spins, it parks until the deadline and accepts to wake up late</li>
+     * <li>{@code BALANCED} parks until the deadline minus the expected overshoot, then spins</li>
+     * <li>{@code LOW_LATENCY} parks until the deadline minus twice the expected overshoot (and at least half a
+     * millisecond), then spins</li>
+     * </ul>
+     */
+    public enum Policy {
+        POWER_SAVER(0, 0),
+        BALANCED(1, 50_000),
+        LOW_LATENCY(2, 500_000);
+
+        /**
+         * how many times the expected overshoot of {@code parkNanos} is kept for the spin
+         */
+        private final int overshootFactor;
+        /**
+         * the minimal spin duration in nanoseconds
+         */
+        private final long minSpinNs;
+
+        Policy(int overshootFactor, long minSpinNs) {
+            this.overshootFactor = overshootFactor;
+            this.minSpinNs = minSpinNs;
+        }
+    }
+
+    private final Policy policy;
+    /**
+     * The expected overshoot of {@code parkNanos}, in nanoseconds. It's an exponential moving average, corrected after
+     * every park.
+     */
+    private long parkOvershootNs;
+
+    /**
+     * @param policy the trade-off between CPU usage and precision
+     */
+    public LoopScheduler(Policy policy) {
+        this.policy = policy;
+        calibrate();
+    }
+
+    /**
+     * Gets the policy from the system property {@code pong.loopPolicy} (the name of a {@link Policy} constant, case
+     * insensitive). Falls back to {@link Policy#BALANCED} if the property is not set or not valid.
+     * @return the policy chosen by the user
+     */
+    public static Policy policyFromProperties() {
+        String name = System.getProperty("pong.loopPolicy");
+        if (name == null) return Policy.BALANCED;
+        try {
+            return Policy.valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown loop policy \"" + name + "\", BALANCED is used instead");
+            return Policy.BALANCED;
+        }
+    }
+
+    /**
+     * Measures how late {@code parkNanos} wakes up on this machine with a few short parks. The median is kept so a
+     * single hiccup doesn't make the scheduler spin for nothing.
+     */
+    private void calibrate() {
+        final int SAMPLES = 11;
+        final long PARK_NS = 200_000;
+        long[] overshoots = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            LockSupport.parkNanos(PARK_NS);
+            overshoots[i] = Math.max(0, System.nanoTime() - start - PARK_NS);
+        }
+        Arrays.sort(overshoots);
+        parkOvershootNs = overshoots[SAMPLES / 2];
+    }
+
+    /**
+     * Blocks the calling thread until {@code deadline} (as given by {@link System#nanoTime()}) is reached, or a bit
+     * later for {@link Policy#POWER_SAVER}. Returns right away if the deadline is already passed.
+     * @param deadline the moment the thread should wake up, in nanoseconds
+     */
+    public void waitUntil(long deadline) {
+        long spinNs = Math.max(policy.minSpinNs, parkOvershootNs * policy.overshootFactor);
+        if (policy == Policy.POWER_SAVER) spinNs = 0;
+
+        long remaining = deadline - System.nanoTime();
+        if (remaining > spinNs) {
+            long requested = remaining - spinNs;
+            long start = System.nanoTime();
+            LockSupport.parkNanos(requested);
+            long overshoot = Math.max(0, System.nanoTime() - start - requested);
+            // exponential moving average with a weight of 1/8, so the estimate follows the load of the machine
+            parkOvershootNs += (overshoot - parkOvershootNs) >> 3;
+        }
+        if (spinNs == 0) return;
+        while (deadline - System.nanoTime() > 0) Thread.onSpinWait();
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+}
@@ -1,9 +1,12 @@
 package game;
 
+import game.arena.BallArena;
 import game.keyHandling.GameActions;
 import game.keyHandling.InputHandler;
 import game.menu.*;
 import java.awt.Graphics;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * The matchManager is the class that handles everything that happens during the game. While the class Game (the master)
@@ -12,8 +15,16 @@ import java.awt.Graphics;
  * states of the game.
  * It's created once in the Game class and "knows" its game object as "master", so it can communicate if needed. It also
  * manages the ball and the 2 rackets, whether they're players or AI.
+ * <p>
+ * A MatchManager can also be created {@link #headless()}, without any master, input, menu or image, so bot-vs-bot
+ * matches can be ticked as fast as possible on a machine without display. In that case, the match stops once it's won
+ * (see {@link #isOver()}) and rendering it is not supported.
+ * <p>
+ * Every match is seeded : the randomness of the bots comes from the match seed only, so a match played again with the
+ * same seed and the same inputs is the same, tick for tick. A {@link MatchObserver} can follow the matches, which is
+ * how they're recorded.
  */
-public class MatchManager implements Renderable, Updatable, MenuMaster<MatchManager.PauseMenuOptions> {
+public final class MatchManager implements Renderable, Updatable, MenuMaster<MatchManager.PauseMenuOptions> {
 
     public enum PauseMenuOptions {
         RESUME,
@@ -21,7 +32,30 @@ public class MatchManager implements Renderable, Updatable, MenuMaster<MatchMana
         NEW
     }
 
-    private final Game master;
+    /**
+     * Follows the life of the matches : an observer is told when a match starts, before each of its ticks and when it
+     * ends, whether it's won, abandoned for the main menu or restarted.
+     */
+    public interface MatchObserver {
+        void matchStarted(MatchManager match);
+
+        /**
+         * Called at the start of every tick of a match in progress, before anything is updated.
+         * @param match the match about to be updated
+         */
+        void beforeTick(MatchManager match);
+
+        void matchEnded(MatchManager match);
+    }
+
+    /**
+     * The choices of the pause menu, in its order, for the menu of a headless match
+     */
+    private static final List<PauseMenuOptions> PAUSE_ACTIONS = List.of(PauseMenuOptions.RESUME,
+            PauseMenuOptions.MAIN_MENU);
+
+    private final MenuMaster<Game.MainMenuOptions> master;
+    private final boolean headless;
     private Menu<PauseMenuOptions> menu;
     private final int middleX;
     private final int middleY;
@@ -34,18 +68,141 @@ public class MatchManager implements Renderable, Updatable, MenuMaster<MatchMana
     private int scorePlayer1;
     private int scorePlayer2;
     private final InputHandler<GameActions> input;
-    private final BackGroundMenu backGround = new BackGroundMenu(this, null);
+    /**
+     * null if the match is headless, since the background is an image
+     */
+    private final BackGroundMenu backGround;
     private Runnable handleMovements;
+    /**
+     * Used by {@link #render(Graphics)} to draw the live state with the same code as the render thread
+     */
+    private final MatchSnapshot liveSnapshot = new MatchSnapshot();
+    /**
+     * The scores shown by {@link #backGround}, only accessed while rendering
+     */
+    private int shownScore1 = -1, shownScore2 = -1;
+    /**
+     * The pause or won menu drawn on top of the match, only accessed while rendering : it stands for the menu of the
+     * snapshot, whose id is {@link #shownMenuId}, and is replaced when the snapshot shows another one
+     */
+    private Menu<PauseMenuOptions> shownMenu;
+    private int shownMenuId;
+    /**
+     * The positions of the entities at the start of the current tick, used for the interpolation
+     */
+    private float previousBallX, previousBallY, previousPlayer1Y, previousPlayer2Y;
+    /**
+     * 0 for bot-vs-bot, 1 for player-vs-bot and 2 for player-vs-player, as in {@link #startGame(int)}
+     */
+    private int gameMode;
+    private long matchSeed;
+    private boolean matchInProgress = false;
+    private MatchObserver observer;
+    /**
+     * The extra balls of the multi-ball mode, null if it's off
+     */
+    private BallArena arena;
+    /**
+     * The physics of the ball, kept here since every match has a new ball
+     */
+    private boolean fixedPoint;
+    /**
+     * Where the ball goes, calculated once for each trajectory and read by both computers
+     */
+    final TrajectoryPredictor predictor = new TrajectoryPredictor();
+    /**
+     * Where the computers choose their targets, null if they do it during the tick
+     */
+    private ComputerWorker computerWorker;
+    /**
+     * The number of matches started, so the worker knows when its copy of the match is outdated
+     */
+    private int generation;
 
-    public MatchManager(Game master, InputHandler<GameActions> input) {
+    public MatchManager(MenuMaster<Game.MainMenuOptions> master, InputHandler<GameActions> input) {
+        this(master, input, false);
+    }
+
+    private MatchManager(MenuMaster<Game.MainMenuOptions> master, InputHandler<GameActions> input, boolean headless) {
         this.master = master;
         this.input = input;
+        this.headless = headless;
+        this.backGround = headless ? null : new BackGroundMenu(this, null);
         this.middleX = Game.WIDTH / 2;
         this.middleY = Game.HEIGHT / 2;
     }
 
+    /**
+     * Creates a MatchManager that doesn't create any AWT object : no background, no menu and no input. It can only
+     * play bot-vs-bot matches, started with {@link #startGame(ComputerPlayer.Difficulty, ComputerPlayer.Difficulty)},
+     * and draws nothing when it's rendered. It works with {@code -Djava.awt.headless=true}.
+     * @return a new headless MatchManager
+     */
+    public static MatchManager headless() {
+        return new MatchManager(null, null, true);
+    }
+
+    /**
+     * Creates a headless MatchManager that reads an input, like an input replayed from a recording. It can play every
+     * kind of match, and the pause menu is replaced by a {@link HeadlessMenu} with the same choices.
+     * @param input the input of the players
+     * @return a new headless MatchManager
+     */
+    public static MatchManager headless(InputHandler<GameActions> input) {
+        return new MatchManager(null, input, true);
+    }
+
+    public void setObserver(MatchObserver observer) {
+        this.observer = observer;
+    }
+
+    /**
+     * Turns the multi-ball mode on : the balls of the arena bounce on the rackets along with the ball of the match,
+     * while it's played. Their points are counted by the arena, the match is still decided by its own ball. The arena
+     * is not part of the {@link MatchState}, and matches with an arena are never skipped by {@link #advance(long)}.
+     * @param arena the extra balls, or null to turn the mode off
+     */
+    public void setArena(BallArena arena) {
+        this.arena = arena;
+    }
+
+    public BallArena getArena() {
+        return arena;
+    }
+
+    /**
+     * Chooses the physics of the ball : in fixed point, a match plays exactly the same on every JVM and platform, see
+     * {@link FixedPoint}. Both physics play the same game, but not to the bit, so a recording must be replayed with
+     * the physics it was recorded with.
+     * @param fixedPoint true for the fixed-point physics, false for the float physics (the default)
+     */
+    public void setFixedPoint(boolean fixedPoint) {
+        this.fixedPoint = fixedPoint;
+        ball.setFixedPoint(fixedPoint);
+    }
+
+    public boolean isFixedPoint() {
+        return fixedPoint;
+    }
+
+    /**
+     * Makes the computers choose their targets in a worker thread, rather than during the tick. A computer that gets
+     * its targets late keeps the previous ones, so the matches are only played the same every time without a worker,
+     * and a match with a worker is never skipped by {@link #advance(long)}.
+     * @param computerWorker the worker, or null to choose the targets during the tick (the default)
+     */
+    public void setComputerWorker(ComputerWorker computerWorker) {
+        this.computerWorker = computerWorker;
+    }
+
     @Override
     public void update() {
+        storePreviousPositions();
+        if (observer != null && matchInProgress) observer.beforeTick(this);
+        updateState();
+    }
+
+    private void updateState() {
         //TODO : maybe use Runnable objects instead of a huge block ?
         switch (gameState) {
             case -1 -> {
@@ -56,11 +213,9 @@ public class MatchManager implements Renderable, Updatable, MenuMaster<MatchMana
                 if (countdown > 0) {
                     countdown--;
                 } else {
-                    ball.speed.set(2f * scoreSide, 0); // the ball is headed to the player that lost last point
+                    ball.setSpeed(2f * scoreSide, 0); // the ball is headed to the player that lost last point
                     gameState++;
-                    for (Racket player : new Racket[] {player1, player2}) {
-                        if (player instanceof ComputerPlayer) ((ComputerPlayer) player).setTargetY.accept(ball);
-                    }
+                    retargetComputers();
                 }
             }
 
@@ -68,8 +223,8 @@ public class MatchManager implements Renderable, Updatable, MenuMaster<MatchMana
                 gameLogic();
                 scoreSide = ball.touchDown();
                 if (scoreSide == 0) return;
-                int score = (scoreSide == 1)? ++scorePlayer1:++scorePlayer2;
-                backGround.updateScore(score, scoreSide);
+                if (scoreSide == 1) scorePlayer1++;
+                else scorePlayer2++;
                 countdown = 200; // in ticks = 2 seconds
                 gameState++;
             }
@@ -80,7 +235,8 @@ public class MatchManager implements Renderable, Updatable, MenuMaster<MatchMana
                     resetPos();
                     if (winTest()) {
                         gameState++;
-                        menu = new WonMenu(this, input, scoreSide);
+                        endMatch();
+                        if (!headless) menu = new WonMenu(this, input, scoreSide);
                         countdown = 150; // in ticks = 1.5 seconds
                     } else {
                         gameState = 0;
@@ -90,30 +246,162 @@ public class MatchManager implements Renderable, Updatable, MenuMaster<MatchMana
             }
 
             case 3 -> {
+                // a headless match has no main menu to go back to, it just stays over
+                if (headless) return;
                 if (menu == null) {
                     if (countdown > 0) countdown--;
                     else {
                         gameState = -1;
-                        master.openMenu();
+                        if (master != null) master.openMenu();
                     }
                 } else menu.update(); //else the menu will not update
             }
         }
     }
 
+    /**
+     * Plays up to {@code maxTicks} ticks at once, with exactly the same result as calling {@link #update()} as many
+     * times, but much faster : the countdowns are skipped in one go, and so are the ticks where the ball flies straight
+     * and the computers go to their targets, up to the tick before the next collision or point. That tick and the ones
+     * with a collision are played one by one. It only skips ticks of bot-vs-bot matches without input nor observer,
+     * in other cases (or when nothing can be skipped) it plays a single tick. The countdowns of a match of LEARNED are
+     * skipped, but not its rallies, since it decides every tick.
+     * @param maxTicks the most ticks to play, at least 1
+     * @return the number of ticks played
+     */
+    public long advance(long maxTicks) {
+        if (maxTicks <= 1 || input != null || observer != null || menu != null || arena != null
+                || computerWorker != null || !(player1 instanceof ComputerPlayer)
+                || !(player2 instanceof ComputerPlayer)) {
+            update();
+            return 1;
+        }
+        switch (gameState) {
+            case 0, 2 -> {
+                if (countdown == 0) break;
+                // nothing moves during the countdowns
+                long ticks = Math.min(countdown, maxTicks);
+                countdown -= (int) ticks;
+                storePreviousPositions();
+                return ticks;
+            }
+            case 1 -> {
+                if (((ComputerPlayer) player1).decidesEveryTick() || ((ComputerPlayer) player2).decidesEveryTick()) {
+                    break;
+                }
+                // the last tick before the collision is played normally, so the previous positions are right
+                long ticks = ball.skipStraightMoves(maxTicks - 1);
+                if (ticks == 0) break;
+                ((ComputerPlayer) player1).skipMoves(ticks);
+                ((ComputerPlayer) player2).skipMoves(ticks);
+                update();
+                return ticks + 1;
+            }
+        }
+        update();
+        return 1;
+    }
+
     public void updateEntities() {
         player1.update();
         player2.update();
         ball.update();
     }
 
+    /**
+     * Renders the current state of the match. It reads the entities directly, so it should only be called from the
+     * thread that updates them, the render thread uses {@link #render(Graphics, MatchSnapshot)} instead.
+     * @param g the Graphics object used to render
+     */
     @Override
     public void render(Graphics g){
+        writeSnapshot(liveSnapshot);
+        render(g, liveSnapshot, 1);
+    }
+
+    /**
+     * Renders a match from a snapshot, without reading the entities themselves, so it can be called from another
+     * thread than the one updating the match. A headless match draws nothing.
+     * @param g the Graphics object used to render
+     * @param s a snapshot filled by {@link #writeSnapshot(MatchSnapshot)}
+     * @param alpha where to draw the entities between their previous (0) and current (1) positions
+     */
+    public void render(Graphics g, MatchSnapshot s, float alpha) {
+        if (headless) return;
+        if (s.scorePlayer1 != shownScore1) backGround.updateScore(shownScore1 = s.scorePlayer1, 1);
+        if (s.scorePlayer2 != shownScore2) backGround.updateScore(shownScore2 = s.scorePlayer2, -1);
         backGround.render(g);
-        player1.render(g);
-        player2.render(g);
-        ball.render(g);
-        if (menu != null) menu.render(g);
+        if (s.entitiesReady) {
+            Racket.render(g, s.player1X, lerp(s.previousPlayer1Y, s.player1Y, alpha));
+            Racket.render(g, s.player2X, lerp(s.previousPlayer2Y, s.player2Y, alpha));
+            ball.render(g, lerp(s.previousBallX, s.ballX, alpha), lerp(s.previousBallY, s.ballY, alpha));
+        }
+        if (s.entitiesReady) {
+            for (int i = 0; i < s.arenaSize; i++) ball.render(g, s.arenaX[i], s.arenaY[i]);
+        }
+        if (s.menu != MatchSnapshot.NO_MENU) shownMenu(s).render(g);
+    }
+
+    /**
+     * @return the menu drawn for the menu of a snapshot, with its selection
+     */
+    private Menu<PauseMenuOptions> shownMenu(MatchSnapshot s) {
+        if (shownMenu == null || shownMenuId != s.menuId) {
+            shownMenu = (s.menu == MatchSnapshot.WON_MENU) ? new WonMenu(null, null, s.menuWinningSide)
+                    : new PauseMenu(null, null);
+            shownMenuId = s.menuId;
+        }
+        shownMenu.select(s.menuSelection);
+        return shownMenu;
+    }
+
+    /**
+     * Copies everything needed to draw the match into a snapshot. Every field of the snapshot is overwritten, except
+     * {@link MatchSnapshot#matchShown} and {@link MatchSnapshot#tickTime} that are decided by the Game.
+     * @param s the snapshot to fill, usually {@link SnapshotExchange#back()}
+     */
+    public void writeSnapshot(MatchSnapshot s) {
+        s.entitiesReady = player1 != null && player2 != null;
+        if (s.entitiesReady) {
+            s.ballX = ball.position.getX();
+            s.ballY = ball.position.getY();
+            s.player1X = player1.x;
+            s.player1Y = player1.y;
+            s.player2X = player2.x;
+            s.player2Y = player2.y;
+            s.previousBallX = previousBallX;
+            s.previousBallY = previousBallY;
+            s.previousPlayer1Y = previousPlayer1Y;
+            s.previousPlayer2Y = previousPlayer2Y;
+        }
+        s.scorePlayer1 = scorePlayer1;
+        s.scorePlayer2 = scorePlayer2;
+        if (menu instanceof WonMenu) s.setMenu(MatchSnapshot.WON_MENU, menu, ((WonMenu) menu).getWinningSide());
+        else s.setMenu((menu == null) ? MatchSnapshot.NO_MENU : MatchSnapshot.PAUSE_MENU, menu, 0);
+        s.arenaSize = (arena == null) ? 0 : arena.size();
+        if (s.arenaSize > 0) {
+            if (s.arenaX == null || s.arenaX.length < s.arenaSize) {
+                s.arenaX = new float[arena.size()];
+                s.arenaY = new float[arena.size()];
+            }
+            arena.copyPositions(s.arenaX, s.arenaY);
+        }
+    }
+
+    private static float lerp(float from, float to, float alpha) {
+        return from + (to - from) * alpha;
+    }
+
+    /**
+     * Keeps the current positions of the entities as the start of the tick for the interpolation. Also called after a
+     * teleportation, so the entities are not drawn sliding across the field.
+     */
+    private void storePreviousPositions() {
+        if (player1 == null || player2 == null) return;
+        previousBallX = ball.position.getX();
+        previousBallY = ball.position.getY();
+        previousPlayer1Y = player1.y;
+        previousPlayer2Y = player2.y;
     }
 
     @Override
@@ -122,24 +410,26 @@ public class MatchManager implements Renderable, Updatable, MenuMaster<MatchMana
             case RESUME -> menu = null;
             case MAIN_MENU -> {
                 menu = null;
+                endMatch();
                 gameState = -1;
-                master.openMenu();
+                if (master != null) master.openMenu();
             }
             case NEW -> {
+                // a new match with the same players, but a new seed
                 menu = null;
-                resetPos();
-                backGround.updateScore(0, 1);
-                backGround.updateScore(0, -1);
-                scorePlayer1 = scorePlayer2 = 0;
-                scoreSide = 1;
-                gameState = 0;
+                endMatch();
+                matchSeed = ThreadLocalRandom.current().nextLong();
+                if (player1 instanceof ComputerPlayer) ((ComputerPlayer) player1).reset(botSeed(matchSeed, 1));
+                if (player2 instanceof ComputerPlayer) ((ComputerPlayer) player2).reset(botSeed(matchSeed, -1));
+                initMatch();
             }
         }
     }
 
     @Override
     public void openMenu() {
-        menu = new PauseMenu(this, input);
+        if (headless) menu = new HeadlessMenu<>(this, input, PAUSE_ACTIONS);
+        else menu = new PauseMenu(this, input);
     }
 
     @Override
@@ -154,27 +444,26 @@ public class MatchManager implements Renderable, Updatable, MenuMaster<MatchMana
      */
     private void resetPos() {
         player1.y = player2.y = middleY - (float) Racket.HEIGHT / 2;
-        ball.position.set(middleX, middleY);
-        ball.speed.set(0,0);
+        ball.setPosition(middleX, middleY);
+        ball.setSpeed(0, 0);
+        storePreviousPositions();
     }
 
     public void startGame(int gameMode) {
-        backGround.updateScore(0,1);
-        backGround.updateScore(0,-1);
-        scorePlayer1 = scorePlayer2 = 0;
-        scoreSide = 1;
+        startGame(gameMode, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Starts a match with a given seed, the same seed and the same inputs give the same match.
+     * @param gameMode 0 for bot-vs-bot, 1 for player-vs-bot and 2 for player-vs-player
+     * @param seed the seed of the match
+     */
+    public void startGame(int gameMode, long seed) {
         switch (gameMode) {
-            case 0 -> {
-                player1 = new ComputerPlayer(1, ComputerPlayer.Difficulty.SMART);
-                player2 = new ComputerPlayer(-1, ComputerPlayer.Difficulty.SMART);
-                handleMovements = () -> {
-                    ((ComputerPlayer) player1).computerMove.run();
-                    ((ComputerPlayer) player2).computerMove.run();
-                };
-            }
+            case 0 -> startGame(ComputerPlayer.Difficulty.SMART, ComputerPlayer.Difficulty.SMART, seed);
             case 1 -> {
                 player1 = new Racket(1);
-                player2 = new ComputerPlayer(-1, ComputerPlayer.Difficulty.THICKHEAD);
+                player2 = new ComputerPlayer(-1, ComputerPlayer.Difficulty.THICKHEAD, botSeed(seed, -1));
                 handleMovements = () -> {
                     if (input.actionActivated(GameActions.PLAYER1_MOVE_DOWN) || input.actionActivated(GameActions.PLAYER2_MOVE_DOWN)) {
                         player1.y += Racket.SPEED;
@@ -182,8 +471,11 @@ public class MatchManager implements Renderable, Updatable, MenuMaster<MatchMana
                     if (input.actionActivated(GameActions.PLAYER1_MOVE_UP) || input.actionActivated(GameActions.PLAYER2_MOVE_UP)) {
                         player1.y -= Racket.SPEED;
                     }
-                    ((ComputerPlayer) player2).computerMove.run();
+                    ((ComputerPlayer) player2).goToTargetY();
                 };
+                this.gameMode = 1;
+                this.matchSeed = seed;
+                initMatch();
             }
             case 2 -> {
                 player1 = new Racket(1);
@@ -194,15 +486,82 @@ public class MatchManager implements Renderable, Updatable, MenuMaster<MatchMana
                     if (input.actionActivated(GameActions.PLAYER2_MOVE_DOWN)) player2.y += Racket.SPEED;
                     if (input.actionActivated(GameActions.PLAYER2_MOVE_UP)) player2.y -= Racket.SPEED;
                 };
+                this.gameMode = 2;
+                this.matchSeed = seed;
+                initMatch();
             }
         }
+    }
+
+    /**
+     * Starts a bot-vs-bot match, the only kind of match a headless MatchManager can play.
+     * @param left the difficulty of the left bot (player 1)
+     * @param right the difficulty of the right bot (player 2)
+     */
+    public void startGame(ComputerPlayer.Difficulty left, ComputerPlayer.Difficulty right) {
+        startGame(left, right, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Starts a bot-vs-bot match with a given seed, the same seed gives the same match.
+     * @param left the difficulty of the left bot (player 1)
+     * @param right the difficulty of the right bot (player 2)
+     * @param seed the seed of the match
+     */
+    public void startGame(ComputerPlayer.Difficulty left, ComputerPlayer.Difficulty right, long seed) {
+        ComputerPlayer bot1 = new ComputerPlayer(1, left, botSeed(seed, 1));
+        ComputerPlayer bot2 = new ComputerPlayer(-1, right, botSeed(seed, -1));
+        player1 = bot1;
+        player2 = bot2;
+        handleMovements = () -> {
+            bot1.goToTargetY();
+            bot2.goToTargetY();
+        };
+        this.gameMode = 0;
+        this.matchSeed = seed;
+        initMatch();
+    }
+
+    /**
+     * Derives the seed of a bot from the seed of the match, with the finalizer of SplitMix64 so the 2 bots don't get
+     * correlated seeds.
+     * @param matchSeed the seed of the match
+     * @param side the side of the bot
+     * @return the seed of the bot
+     */
+    private static long botSeed(long matchSeed, int side) {
+        return SplitMix64.mix64(matchSeed + side * 0x9E3779B97F4A7C15L);
+    }
+
+    /**
+     * Resets the scores, the ball and the positions once the players are chosen, then starts the countdown before the
+     * first serve.
+     */
+    private void initMatch() {
+        scorePlayer1 = scorePlayer2 = 0;
+        scoreSide = 1;
         ball = new Ball(this);
+        ball.setFixedPoint(fixedPoint);
         countdown = 100; // in ticks = 1 second
 
         player1.x = Ball.RADIUS * 3;
         player2.x = Game.WIDTH - Ball.RADIUS * 3 - Racket.WIDTH;
+        if (player1 instanceof ComputerPlayer) ((ComputerPlayer) player1).follow(ball);
+        if (player2 instanceof ComputerPlayer) ((ComputerPlayer) player2).follow(ball);
         resetPos();
-        gameState++;
+        generation++;
+        gameState = 0;
+        matchInProgress = true;
+        if (observer != null) observer.matchStarted(this);
+    }
+
+    /**
+     * Tells the observer the match is over, if it was not already.
+     */
+    private void endMatch() {
+        if (!matchInProgress) return;
+        matchInProgress = false;
+        if (observer != null) observer.matchEnded(this);
     }
 
     private void gameLogic() {
@@ -211,14 +570,17 @@ public class MatchManager implements Renderable, Updatable, MenuMaster<MatchMana
             // causes a return because we shouldn't update anything else if there is a PauseMenu.
             return;
         }
-        if (input.actionJustPressed(GameActions.PAUSE)) {
+        if (input != null && input.actionJustPressed(GameActions.PAUSE)) {
             openMenu();
             // same as above, it's safer to stop right away
             return;
         }
+        // the targets chosen by the worker since the previous tick
+        if (computerWorker != null) computerWorker.poll(this);
         handleMovements.run();
         // entities are updated last so every tick the moves are regarded
         updateEntities();
+        if (arena != null) arena.update(player1, player2);
     }
 
     private boolean winTest() {
@@ -227,6 +589,168 @@ public class MatchManager implements Renderable, Updatable, MenuMaster<MatchMana
         return scorePlayer2 >= 9 && scorePlayer2 - scorePlayer1 > 1;
     }
 
+    /**
+     * @return true once the match is won, until a new match is started
+     */
+    public boolean isOver() {
+        return gameState == 3;
+    }
+
+    /**
+     * @return 1 if the left player (player 1) won, -1 if the right player (player 2) won, 0 if the match is not over
+     */
+    public int getWinningSide() {
+        return isOver() ? scoreSide : 0;
+    }
+
+    /**
+     * @return 0 for bot-vs-bot, 1 for player-vs-bot and 2 for player-vs-player
+     */
+    public int getGameMode() {
+        return gameMode;
+    }
+
+    public long getMatchSeed() {
+        return matchSeed;
+    }
+
+    /**
+     * @return the number of matches started by this, to tell them apart
+     */
+    int getGeneration() {
+        return generation;
+    }
+
+    public InputHandler<GameActions> getInput() {
+        return input;
+    }
+
+    /**
+     * Computes a hash of everything that decides how the match goes on : the state, the countdown, the scores and the
+     * exact positions and speeds of the entities. Two matches with the same hash at the same tick are (almost surely)
+     * in the same state.
+     * @return the hash of the state of the match
+     */
+    public long stateHash() {
+        long h = 17;
+        h = 31 * h + gameState;
+        h = 31 * h + countdown;
+        h = 31 * h + scoreSide;
+        h = 31 * h + scorePlayer1;
+        h = 31 * h + scorePlayer2;
+        h = 31 * h + Float.floatToIntBits(ball.position.getX());
+        h = 31 * h + Float.floatToIntBits(ball.position.getY());
+        h = 31 * h + Float.floatToIntBits(ball.speed.getX());
+        h = 31 * h + Float.floatToIntBits(ball.speed.getY());
+        if (player1 != null) h = 31 * h + Float.floatToIntBits(player1.y);
+        if (player2 != null) h = 31 * h + Float.floatToIntBits(player2.y);
+        if (ball.isFixedPoint()) {
+            h = 31 * h + ball.getFixedX();
+            h = 31 * h + ball.getFixedY();
+            h = 31 * h + ball.getFixedSpeedX();
+            h = 31 * h + ball.getFixedSpeedY();
+        }
+        return h;
+    }
+
+    /**
+     * Saves the whole state of the match into a MatchState, without allocating anything, so it can be restored later
+     * with {@link #restoreState(MatchState)}.
+     * @param state where the state is saved, its previous content is overwritten
+     */
+    public void saveState(MatchState state) {
+        int[] d = state.data;
+        d[0] = gameState;
+        d[1] = countdown;
+        d[2] = scoreSide;
+        d[3] = scorePlayer1;
+        d[4] = scorePlayer2;
+        d[5] = gameMode;
+        d[6] = (int) (matchSeed >>> 32);
+        d[7] = (int) matchSeed;
+        d[8] = matchInProgress ? 1 : 0;
+        d[9] = Float.floatToRawIntBits(previousBallX);
+        d[10] = Float.floatToRawIntBits(previousBallY);
+        d[11] = Float.floatToRawIntBits(previousPlayer1Y);
+        d[12] = Float.floatToRawIntBits(previousPlayer2Y);
+        d[13] = playerKind(player1);
+        d[14] = playerKind(player2);
+        int offset = ball.saveState(d, MatchState.HEADER_SIZE);
+        if (player1 != null) offset = player1.saveState(d, offset);
+        if (player2 != null) offset = player2.saveState(d, offset);
+        state.length = offset;
+        state.saved = true;
+    }
+
+    /**
+     * Puts the match back in a state saved by {@link #saveState(MatchState)}, without allocating anything. The observer
+     * is not told anything, and the menus are left as they are.
+     * @param state a saved state
+     * @throws IllegalArgumentException if nothing was saved in the state, or if it was saved from a match with other
+     * kinds of players (a human instead of a computer or computers of another difficulty)
+     */
+    public void restoreState(MatchState state) {
+        int[] d = state.data;
+        if (!state.saved) throw new IllegalArgumentException("no state was saved");
+        if (d[13] != playerKind(player1) || d[14] != playerKind(player2))
+            throw new IllegalArgumentException("the state was saved from a match with other players");
+        gameState = d[0];
+        countdown = d[1];
+        scoreSide = d[2];
+        scorePlayer1 = d[3];
+        scorePlayer2 = d[4];
+        gameMode = d[5];
+        matchSeed = ((long) d[6] << 32) | (d[7] & 0xFFFFFFFFL);
+        matchInProgress = d[8] != 0;
+        previousBallX = Float.intBitsToFloat(d[9]);
+        previousBallY = Float.intBitsToFloat(d[10]);
+        previousPlayer1Y = Float.intBitsToFloat(d[11]);
+        previousPlayer2Y = Float.intBitsToFloat(d[12]);
+        int offset = ball.restoreState(d, MatchState.HEADER_SIZE);
+        if (player1 != null) offset = player1.restoreState(d, offset);
+        if (player2 != null) player2.restoreState(d, offset);
+    }
+
+    /**
+     * @return -2 if there is no player, -1 for a human and the ordinal of the difficulty for a computer
+     */
+    static int playerKind(Racket player) {
+        if (player == null) return -2;
+        if (player instanceof ComputerPlayer) return ((ComputerPlayer) player).getDifficulty().ordinal();
+        return -1;
+    }
+
+    public int getScorePlayer1() {
+        return scorePlayer1;
+    }
+
+    public int getScorePlayer2() {
+        return scorePlayer2;
+    }
+
+    /**
+     * Makes the computers calculate where to go from the current position and speed of the ball. Reads the players
+     * directly, unlike {@link #getComputers()}, since it's called during the ticks and must not allocate. With a
+     * worker, the computers that choose a target are sent to it instead, only LEARNED still looks at the ball here.
+     */
+    void retargetComputers() {
+        if (computerWorker != null) {
+            int mask = 0;
+            if (player1 instanceof ComputerPlayer) {
+                if (((ComputerPlayer) player1).decidesEveryTick()) ((ComputerPlayer) player1).setTargetY(ball);
+                else mask |= 1;
+            }
+            if (player2 instanceof ComputerPlayer) {
+                if (((ComputerPlayer) player2).decidesEveryTick()) ((ComputerPlayer) player2).setTargetY(ball);
+                else mask |= 2;
+            }
+            if (mask != 0) computerWorker.submit(this, mask);
+            return;
+        }
+        if (player1 instanceof ComputerPlayer) ((ComputerPlayer) player1).setTargetY(ball);
+        if (player2 instanceof ComputerPlayer) ((ComputerPlayer) player2).setTargetY(ball);
+    }
+
     public Racket[] getPlayers() {
         return new Racket[] {player1, player2};
     }
@@ -0,0 +1,77 @@
+package game;
+
+import game.keyHandling.InputHandler;
+import game.menu.Menu;
+
+/**
+ * A copy of everything needed to draw a frame : the ball, the rackets, the scores and the menu shown on top (if any).
+ * The positions are stored twice, as they were at the start and at the end of the tick, so the renderer can draw the
+ * entities in between when a frame falls between 2 ticks.
+ * The simulation thread fills a snapshot after each tick and hands it to the render thread through a
+ * {@link SnapshotExchange}, so the render thread never reads the entities while they're updated. Snapshots are
+ * created once and reused, they should be regarded as immutable from the moment they're published.
+ * @see MatchManager#writeSnapshot(MatchSnapshot)
+ */
+public class MatchSnapshot {
+    /**
+     * The menus a snapshot can show, see {@link #menu}
+     */
+    public static final int NO_MENU = 0, MAIN_MENU = 1, PAUSE_MENU = 2, WON_MENU = 3;
+    /**
+     * false when the main menu is shown instead of the match
+     */
+    public boolean matchShown;
+    /**
+     * false until a match has been started, the entities below are meaningless in that case
+     */
+    public boolean entitiesReady;
+    public float ballX, ballY;
+    public float player1X, player1Y;
+    public float player2X, player2Y;
+    /**
+     * The positions at the start of the tick, equal to the ones above if the entities were teleported during the tick
+     */
+    public float previousBallX, previousBallY;
+    public float previousPlayer1Y, previousPlayer2Y;
+    /**
+     * The moment (given by {@link System#nanoTime()}) the tick that produced this snapshot was due. The elapsed time
+     * since then, in ticks, is the interpolation factor between the previous and the current positions.
+     */
+    public long tickTime;
+    /**
+     * The {@link System#nanoTime()} of the oldest key event read by the ticks and not shown yet,
+     * {@link InputHandler#NO_EVENT} if there is none. The render thread measures how long it took to show it once the
+     * frame is presented.
+     */
+    public long inputTime = InputHandler.NO_EVENT;
+    public int scorePlayer1, scorePlayer2;
+    /**
+     * The positions of the balls of the multi-ball mode, only the first {@code arenaSize} ones are meaningful. The
+     * arrays are only replaced when they're too small.
+     */
+    public float[] arenaX, arenaY;
+    public int arenaSize;
+    /**
+     * The menu drawn on top of everything, or instead of the match if {@link #matchShown} is false, one of the
+     * constants above. The menus belong to the simulation thread, which moves their selection and replaces them, so
+     * only what tells them apart is copied, and the render thread draws menus of its own with the same selection.
+     */
+    public int menu = NO_MENU;
+    /**
+     * The id of the menu, see {@link Menu#getId()}, its selection and the side that won for {@link #WON_MENU}
+     */
+    public int menuId, menuSelection, menuWinningSide;
+
+    /**
+     * Copies what's needed to draw a menu.
+     * @param kind one of the constants above
+     * @param menu the menu, null for {@link #NO_MENU}
+     * @param winningSide the side that won for {@link #WON_MENU}, 0 otherwise
+     */
+    void setMenu(int kind, Menu<?> menu, int winningSide) {
+        this.menu = kind;
+        menuId = (menu == null) ? 0 : menu.getId();
+        menuSelection = (menu == null) ? 0 : menu.getSelection();
+        menuWinningSide = winningSide;
+    }
+}
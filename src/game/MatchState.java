@@ -0,0 +1,49 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * A saved state of a match, for rollbacks and save states : everything {@link MatchManager#update()} reads and writes,
+ * from the state and the scores of the match to the targets and the random generators of the computers. The state is
+ * stored as raw bits in a single int array, created once, so saving and restoring a state copy a few hundred ints at
+ * most and never allocate. A MatchState can be reused as many times as needed.
+ * <p>
+ * The state doesn't hold the players themselves : it can only be restored into the match it was saved from, or into
+ * a match with the same kind of players (see {@link MatchManager#restoreState(MatchState)}). The menus are not part of
+ * the state either, they're left as they are when a state is restored.
+ * @see MatchManager#saveState(MatchState)
+ */
+public class MatchState {
+    /**
+     * The size of the part written by the MatchManager itself
+     */
+    static final int HEADER_SIZE = 15;
+    static final int SIZE = HEADER_SIZE + Ball.stateSize()
+            + 2 * Math.max(Racket.stateSize(), ComputerPlayer.stateSize());
+
+    final int[] data = new int[SIZE];
+    /**
+     * false until a state is saved into this object
+     */
+    boolean saved = false;
+    /**
+     * How many ints of {@link #data} the saved state uses
+     */
+    int length;
+
+    /**
+     * Compares 2 saved states, to the bit.
+     * @param other another saved state
+     * @return true if both states are the same
+     */
+    public boolean sameAs(MatchState other) {
+        return saved && other.saved && Arrays.equals(data, 0, length, other.data, 0, other.length);
+    }
+
+    /**
+     * @return true once a state was saved into this object
+     */
+    public boolean isSaved() {
+        return saved;
+    }
+}
@@ -0,0 +1,216 @@
+package game;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The policy of the LEARNED computer : for every state of the match, as a racket sees it, whether the racket goes up,
+ * goes down or stays. It's a table learned by self-play (see {@code game.simulation.PolicyTrainer}), read from a file
+ * mapped in memory, so choosing a move is a division of the field into bins and a read in the table, and loading it
+ * costs no more than opening the file.
+ * <p>
+ * The state is made of the x, y, horizontal and vertical speed of the ball and the y of the racket, each one cut into a
+ * few bins, as the racket sees them : the x is the distance from the racket and the horizontal speed is negative when
+ * the ball comes toward it, so both sides use the same table, and the y of the racket is taken from where the ball
+ * reaches its goal (calculated from the position and the speed of the ball, like {@link TrajectoryPredictor} does),
+ * or from where the ball is if it goes away. Cut into bins as they are, the 5 numbers only let the table follow the
+ * ball, too late when it goes faster than the racket, whereas seen this way 15 bins are enough to anticipate it. The
+ * file is :
+ * <pre>
+ * header  : int MAGIC, short VERSION, byte X_BINS, byte Y_BINS, byte SPEED_X_BINS, byte SPEED_Y_BINS, byte RACKET_BINS,
+ *           byte 0
+ * actions : 2 bits per state, 4 states per byte, the state i in the bits 2 * (i % 4) of the byte i / 4
+ * </pre>
+ * The policy shipped with the game is the resource {@code game/policy.qtable}, in the {@code resources} directory,
+ * another one is used with {@code -Dpong.policy=path}. Without a policy, LEARNED plays like SMART. A match of LEARNED
+ * is only replayed the same with the policy it was played with.
+ */
+public final class QPolicy {
+    public static final int X_BINS = 8;
+    public static final int Y_BINS = 8;
+    public static final int SPEED_X_BINS = 4;
+    public static final int SPEED_Y_BINS = 6;
+    public static final int RACKET_BINS = 15;
+    public static final int STATES = X_BINS * Y_BINS * SPEED_X_BINS * SPEED_Y_BINS * RACKET_BINS;
+    public static final int STAY = 0, UP = 1, DOWN = 2;
+    public static final int ACTIONS = 3;
+    public static final String FILE_NAME = "policy.qtable";
+    static final int MAGIC = 0x51504F4C; // "QPOL"
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 12;
+    /**
+     * How far from the racket the ball can be, roughly from a racket to the other
+     */
+    private static final float MAX_DISTANCE = Game.WIDTH - 6 * Ball.RADIUS;
+    /**
+     * The bounds of the bins of the horizontal and vertical speeds, a speed below the i-th bound is in the bin i
+     */
+    private static final float[] SPEED_X_BOUNDS = {-4, -2.5f, 0};
+    private static final float[] SPEED_Y_BOUNDS = {-3, -1, 0, 1, 3};
+    /**
+     * The bounds of the bins of the y of the racket, from where the ball arrives, finer where the racket catches it
+     */
+    private static final float[] RACKET_BOUNDS = {-200, -120, -80, -50, -30, -15, -5, 5, 15, 30, 50, 80, 120, 200};
+    private static QPolicy shared;
+    private static boolean sharedLoaded;
+
+    /**
+     * The actions, after the header. Only absolute reads are used, so it can be read by several threads.
+     */
+    private final ByteBuffer table;
+
+    private QPolicy(ByteBuffer table) {
+        this.table = table;
+    }
+
+    /**
+     * @return the policy of the game, mapped the first time it's needed and shared by every computer, or null if it
+     * can't be read, which is only said once
+     */
+    public static synchronized QPolicy shared() {
+        if (!sharedLoaded) {
+            sharedLoaded = true;
+            try {
+                shared = load(locate());
+            } catch (IOException e) {
+                System.err.println("The policy of LEARNED can't be read, it plays like SMART (train one with "
+                        + "game.simulation.PolicyTrainer) : " + e);
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * @return the file of the policy : the one given with {@code -Dpong.policy}, or the resource
+     * {@code game/policy.qtable}. If the classes are in a jar, it's copied once to a temporary file, since only a file
+     * can be mapped.
+     */
+    private static Path locate() throws IOException {
+        String property = System.getProperty("pong.policy");
+        if (property != null) return Path.of(property);
+        URL url = QPolicy.class.getResource(FILE_NAME);
+        if (url == null) throw new IOException(FILE_NAME + " is missing");
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return Path.of(url.toURI());
+            } catch (URISyntaxException e) {
+                throw new IOException(e);
+            }
+        }
+        Path copy = Files.createTempFile("pong", FILE_NAME);
+        copy.toFile().deleteOnExit();
+        try (InputStream in = url.openStream()) {
+            Files.copy(in, copy, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return copy;
+    }
+
+    /**
+     * Maps a policy file. The mapping stays valid once the file is closed, and the table is never copied in the heap.
+     * @param file a file written by {@link #write(Path, byte[])}
+     * @return the policy
+     * @throws IOException if the file can't be read or isn't a policy with the bins of this version
+     */
+    public static QPolicy load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() != HEADER_SIZE + packedSize()) throw new IOException(file + " is not a policy");
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC) throw new IOException(file + " is not a policy");
+            short version = buffer.getShort();
+            if (version != VERSION) throw new IOException("unsupported policy version " + version);
+            if (buffer.get() != X_BINS || buffer.get() != Y_BINS || buffer.get() != SPEED_X_BINS
+                    || buffer.get() != SPEED_Y_BINS || buffer.get() != RACKET_BINS) {
+                throw new IOException(file + " has other bins than " + X_BINS + "x" + Y_BINS + "x" + SPEED_X_BINS
+                        + "x" + SPEED_Y_BINS + "x" + RACKET_BINS);
+            }
+            return new QPolicy(buffer.position(HEADER_SIZE).slice());
+        }
+    }
+
+    /**
+     * Writes a policy file.
+     * @param file where the policy is written
+     * @param actions the action of every state, {@link #STATES} of them
+     */
+    public static void write(Path file, byte[] actions) throws IOException {
+        if (actions.length != STATES) throw new IllegalArgumentException("a policy has " + STATES + " actions");
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + packedSize());
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.put((byte) X_BINS).put((byte) Y_BINS).put((byte) SPEED_X_BINS).put((byte) SPEED_Y_BINS)
+                .put((byte) RACKET_BINS).put((byte) 0);
+        for (int i = 0; i < STATES; i += 4) {
+            int packed = 0;
+            for (int j = 0; j < 4 && i + j < STATES; j++) packed |= actions[i + j] << (2 * j);
+            buffer.put((byte) packed);
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) channel.write(buffer);
+        }
+    }
+
+    private static int packedSize() {
+        return (STATES + 3) / 4;
+    }
+
+    /**
+     * @param state a state given by {@link #state(Ball, Racket)}
+     * @return {@link #STAY}, {@link #UP} or {@link #DOWN}
+     */
+    public int action(int state) {
+        return (table.get(state >>> 2) >>> (2 * (state & 3))) & 3;
+    }
+
+    /**
+     * @return how much the racket moves this tick, as the policy says
+     */
+    float move(Ball ball, Racket racket) {
+        return switch (action(state(ball, racket))) {
+            case UP -> -Racket.SPEED;
+            case DOWN -> Racket.SPEED;
+            default -> 0;
+        };
+    }
+
+    /**
+     * Cuts the state of the match, as the racket sees it, into bins. It doesn't allocate anything.
+     * @param ball the ball, with either physics
+     * @param racket the racket that chooses a move
+     * @return the index of the state, from 0 to {@link #STATES} - 1
+     */
+    public static int state(Ball ball, Racket racket) {
+        int x = bin((ball.position.getX() - racket.getCenterX()) * racket.side, 0, MAX_DISTANCE, X_BINS);
+        int y = bin(ball.position.getY(), Ball.RADIUS, Game.HEIGHT - Ball.RADIUS, Y_BINS);
+        int speedX = bin(ball.speed.getX() * racket.side, SPEED_X_BOUNDS);
+        int speedY = bin(ball.speed.getY(), SPEED_Y_BOUNDS);
+        int hitTime = TrajectoryPredictor.hitTime(ball, racket);
+        // where the ball reaches the goal of the racket, with the bounces, or where it is if it goes away
+        float arrival = (hitTime >= 0) ? TrajectoryPredictor.ballY(ball, hitTime) : ball.position.getY();
+        int racketY = bin(racket.getCenterY() - arrival, RACKET_BOUNDS);
+        return (((x * Y_BINS + y) * SPEED_X_BINS + speedX) * SPEED_Y_BINS + speedY) * RACKET_BINS + racketY;
+    }
+
+    /**
+     * @return the bin of v when [min, max) is cut into the given number of bins, the values outside being in the first
+     * or the last one
+     */
+    private static int bin(float v, float min, float max, int bins) {
+        return Math.max(0, Math.min(bins - 1, (int) ((v - min) * bins / (max - min))));
+    }
+
+    private static int bin(float v, float[] bounds) {
+        int i = 0;
+        while (i < bounds.length && v >= bounds[i]) i++;
+        return i;
+    }
+}
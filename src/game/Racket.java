@@ -13,7 +13,14 @@ public class Racket implements Renderable, Updatable {
     public static final int HEIGHT = 100;
     public static final int WIDTH = 10;
     public static final float SPEED = 1f;
-    private final int UP_SCROLL_LIMIT, DOWN_SCROLL_LIMIT;
+    final int UP_SCROLL_LIMIT, DOWN_SCROLL_LIMIT;
+    /**
+     * The center of the racket in Q16.16 (see {@link FixedPoint}), for the fixed-point physics of the ball, and the x
+     * and y it was calculated from : the racket is moved through x and y, so it's only calculated again when they
+     * changed, not at every collision
+     */
+    private int fixedCenterX, fixedCenterY;
+    private float fixedFromX = Float.NaN, fixedFromY = Float.NaN;
 
     /**
      * The sole constructor for the Racket object
@@ -29,6 +36,16 @@ public class Racket implements Renderable, Updatable {
 
     @Override
     public void render(Graphics g) {
+        render(g, x, y);
+    }
+
+    /**
+     * Draws a racket at the given position, used to render from a {@link MatchSnapshot}.
+     * @param g the Graphics object used to render
+     * @param x the x coordinate of the left up corner
+     * @param y the y coordinate of the left up corner
+     */
+    public static void render(Graphics g, float x, float y) {
         g.setColor(Color.WHITE);
         g.fillRect((int) x, (int) y, WIDTH, HEIGHT);
     }
@@ -39,8 +56,72 @@ public class Racket implements Renderable, Updatable {
         y = min(DOWN_SCROLL_LIMIT, max(UP_SCROLL_LIMIT, y));
     }
 
+    /**
+     * @return the number of ints {@link #saveState(int[], int)} writes, at most
+     */
+    static int stateSize() {
+        return 2;
+    }
+
+    /**
+     * Writes the state of the racket into a buffer, see {@link MatchState}.
+     * @param buffer where the state is written
+     * @param offset the index of the first int written
+     * @return the index following the last int written
+     */
+    int saveState(int[] buffer, int offset) {
+        buffer[offset++] = Float.floatToRawIntBits(x);
+        buffer[offset++] = Float.floatToRawIntBits(y);
+        return offset;
+    }
+
+    /**
+     * Reads a state written by {@link #saveState(int[], int)}.
+     * @param buffer where the state is read
+     * @param offset the index of the first int read
+     * @return the index following the last int read
+     */
+    int restoreState(int[] buffer, int offset) {
+        x = Float.intBitsToFloat(buffer[offset++]);
+        y = Float.intBitsToFloat(buffer[offset++]);
+        return offset;
+    }
+
     public Vector2D getCenter() {
-        return new Vector2D(x + (float) WIDTH / 2, y + (float) HEIGHT / 2);
+        return new Vector2D(getCenterX(), getCenterY());
+    }
+
+    /**
+     * Same as {@code getCenter().getX()}, without creating a vector, for the collisions tested every tick
+     */
+    public float getCenterX() {
+        return x + (float) WIDTH / 2;
+    }
+
+    public float getCenterY() {
+        return y + (float) HEIGHT / 2;
+    }
+
+    /**
+     * @return the same as {@link #getCenterX()}, in Q16.16
+     */
+    int getFixedCenterX() {
+        if (x != fixedFromX) {
+            fixedCenterX = FixedPoint.fromFloat(getCenterX());
+            fixedFromX = x;
+        }
+        return fixedCenterX;
+    }
+
+    /**
+     * @return the same as {@link #getCenterY()}, in Q16.16
+     */
+    int getFixedCenterY() {
+        if (y != fixedFromY) {
+            fixedCenterY = FixedPoint.fromFloat(getCenterY());
+            fixedFromY = y;
+        }
+        return fixedCenterY;
     }
 
 }
@@ -0,0 +1,80 @@
+package game;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * A lock-free triple buffer used to hand objects from one writer thread to one reader thread. The three objects are
+ * created once, upon construction, and then reused forever :
+ * <ul>
+ * <li>the <i>back</i> object is owned by the writer, which fills it then calls {@link #publish()}</li>
+ * <li>the <i>middle</i> object is the latest published one, waiting to be picked up</li>
+ * <li>the <i>front</i> object is owned by the reader, which gets it after calling {@link #acquire()}</li>
+ * </ul>
+ * Publishing swaps the back and the middle objects and acquiring swaps the middle and the front objects, so the writer
+ * never waits for the reader (and the other way around) and the reader always gets the latest published object.
+ * Objects published in between two acquisitions are simply skipped. Since the back object is the one published two
+ * times ago (or never published), the writer must overwrite every field of it before publishing.
+ * @param <T> the type of the objects exchanged
+ */
+public class SnapshotExchange<T> {
+    /**
+     * Flag set on the middle index when it holds an object that has not been acquired yet
+     */
+    private static final int FRESH = 4;
+    private static final int INDEX_MASK = 3;
+
+    private final Object[] buffers = new Object[3];
+    private final AtomicInteger middle = new AtomicInteger(1);
+    /**
+     * Only accessed by the writer thread
+     */
+    private int back = 0;
+    /**
+     * Only accessed by the reader thread
+     */
+    private int front = 2;
+
+    /**
+     * @param factory called 3 times to create the objects that will be exchanged
+     */
+    public SnapshotExchange(Supplier<T> factory) {
+        for (int i = 0; i < buffers.length; i++) buffers[i] = factory.get();
+    }
+
+    /**
+     * Writer side. The object returned must be filled entirely before calling {@link #publish()}.
+     * @return the object owned by the writer
+     */
+    @SuppressWarnings("unchecked")
+    public T back() {
+        return (T) buffers[back];
+    }
+
+    /**
+     * Writer side. Makes the back object the latest available one and gives the writer a new back object.
+     */
+    public void publish() {
+        back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * Reader side. Takes the latest published object if there is one that has not been acquired yet.
+     * @return true if the front object changed, false if nothing was published since the last call
+     */
+    public boolean acquire() {
+        if ((middle.get() & FRESH) == 0) return false;
+        front = middle.getAndSet(front) & INDEX_MASK;
+        return true;
+    }
+
+    /**
+     * Reader side. Gets the object acquired by the last call of {@link #acquire()}, which won't change until the next
+     * call of {@code acquire()}.
+     * @return the object owned by the reader
+     */
+    @SuppressWarnings("unchecked")
+    public T front() {
+        return (T) buffers[front];
+    }
+}
@@ -0,0 +1,124 @@
+package game;
+
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * The generator of {@link SplittableRandom}, SplitMix64, written here so its state is a single long that can be saved
+ * and restored, and so any number of the sequence can be calculated without the ones before (see
+ * {@link #nth(long, long)}), which is how parallel tasks get independent seeds from a single one. Seeded with the
+ * same seed, it gives the same longs as a {@code new SplittableRandom(seed)}.
+ * <p>
+ * The gaussians come from a ziggurat (Marsaglia and Tsang, 2000) with 128 layers : most of them only cost a long, a
+ * multiplication and a comparison, against 2 doubles, a logarithm and a square root for the polar method of
+ * {@link java.util.Random}. The tables are built with {@link StrictMath} and the rare slow cases only use StrictMath
+ * too, so the gaussians are the same on every JVM and platform. Not thread-safe, each user has its own.
+ */
+public final class SplitMix64 implements RandomGenerator {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final int LAYERS = 128;
+    /**
+     * Where the tail of the ziggurat starts
+     */
+    private static final double R = 3.442619855899;
+    /**
+     * kn[i] : the largest 32-bit integer that falls in the rectangle of the layer i without testing the density,
+     * wn[i] : multiplies a 32-bit integer into an x of the layer i, fn[i] : the density at the edge of the layer i
+     */
+    private static final int[] KN = new int[LAYERS];
+    private static final double[] WN = new double[LAYERS];
+    private static final double[] FN = new double[LAYERS];
+
+    static {
+        double m = 2147483648.0; // 2^31
+        double volume = 9.91256303526217e-3; // the area of each layer
+        double dn = R, tn = R;
+        double q = volume / StrictMath.exp(-.5 * dn * dn);
+        KN[0] = (int) (dn / q * m);
+        KN[1] = 0;
+        WN[0] = q / m;
+        WN[LAYERS - 1] = dn / m;
+        FN[0] = 1;
+        FN[LAYERS - 1] = StrictMath.exp(-.5 * dn * dn);
+        for (int i = LAYERS - 2; i >= 1; i--) {
+            dn = StrictMath.sqrt(-2 * StrictMath.log(volume / dn + StrictMath.exp(-.5 * dn * dn)));
+            KN[i + 1] = (int) (dn / tn * m);
+            tn = dn;
+            FN[i] = StrictMath.exp(-.5 * dn * dn);
+            WN[i] = dn / m;
+        }
+    }
+
+    private long state;
+
+    public SplitMix64(long seed) {
+        this.state = seed;
+    }
+
+    /**
+     * @return the state of the generator, a generator created with it as a seed gives the same numbers from then on
+     */
+    public long getState() {
+        return state;
+    }
+
+    public void setState(long state) {
+        this.state = state;
+    }
+
+    @Override
+    public long nextLong() {
+        return mix64(state += GOLDEN_GAMMA);
+    }
+
+    /**
+     * @param seed the seed of a generator
+     * @param n the index of a number, from 0
+     * @return the n-th long a generator created with the seed gives, calculated at once
+     */
+    public static long nth(long seed, long n) {
+        return mix64(seed + (n + 1) * GOLDEN_GAMMA);
+    }
+
+    /**
+     * The finalizer of SplitMix64 : a bijection of the longs where every bit of the input changes about half of the
+     * bits of the output
+     */
+    public static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @return a number from the standard normal distribution, from the ziggurat
+     */
+    @Override
+    public double nextGaussian() {
+        while (true) {
+            // the layer and the position in it come from different bits, so they're not correlated
+            long bits = nextLong();
+            int hz = (int) (bits >>> 32);
+            int iz = (int) bits & (LAYERS - 1);
+            double x = hz * WN[iz];
+            // inside the rectangle of the layer, which is entirely under the curve, the most common case by far
+            if (Math.abs(hz) < KN[iz]) return x;
+            if (iz == 0) return tail(hz > 0);
+            // in the part of the layer over the edge of the layer above, under the curve or not
+            if (FN[iz] + nextDouble() * (FN[iz - 1] - FN[iz]) < StrictMath.exp(-.5 * x * x)) return x;
+        }
+    }
+
+    /**
+     * @return a number from the tail of the normal distribution beyond {@link #R}, with the method of Marsaglia
+     */
+    private double tail(boolean positive) {
+        double x, y;
+        do {
+            // 1 - nextDouble() is never 0, so the logarithms are finite
+            x = -StrictMath.log(1 - nextDouble()) / R;
+            y = -StrictMath.log(1 - nextDouble());
+        } while (y + y < x * x);
+        return positive ? R + x : -R - x;
+    }
+}
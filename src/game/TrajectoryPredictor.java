@@ -0,0 +1,185 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * Predicts where the ball goes, for the computers : when the ball reaches the goal of a racket, where it is then, and,
+ * if the racket can't foresee that far, where the ball is at several moments until then (see
+ * {@link #targets(Ball, int, float, int, float[], float)}). Everything is calculated with the physics of the ball, and
+ * nothing is allocated.
+ * <p>
+ * A match has a single predictor that its computers share. When the ball is served or hits a racket, the hit time
+ * and the intercept at the goal of a racket are calculated once for the new trajectory, then read by whatever asks
+ * for them until the ball changes (see {@link #predict(Ball, Racket)}). The prediction is kept under the
+ * exact state of the ball, not a rounded one, so it's the same to the bit as a calculated one and the recorded
+ * matches play the same. The static methods calculate without keeping anything, for the balls that are not the ball
+ * of a match, like the copies of the planner of GOD.
+ */
+public final class TrajectoryPredictor {
+    /**
+     * The latest hit time calculated in fixed point, so the predictions can't overflow. A ball that slow is never
+     * served.
+     */
+    private static final int MAX_FIXED_HIT_TIME = Short.MAX_VALUE;
+
+    /**
+     * The state of the ball the predictions are for : the bits of its floats, or its fixed-point numbers
+     */
+    private boolean fixedPoint;
+    private int keyX, keyY, keySpeedX, keySpeedY;
+    /**
+     * For each goal, the left one first : the x of the racket the prediction is for (NaN if there is no prediction
+     * for the current state of the ball), in how many ticks the ball reaches it, and the y of the ball then
+     */
+    private final float[] goalX = {Float.NaN, Float.NaN};
+    private final int[] hitTimes = new int[2];
+    private final float[] intercepts = new float[2];
+    /**
+     * The goal of the last prediction, for {@link #predictedY()}
+     */
+    private int lastGoal;
+
+    /**
+     * Predicts when and where the ball reaches the goal of the racket, unless it was already predicted for the current
+     * state of the ball. Where is then given by {@link #predictedY()}.
+     * @return in how many ticks the ball reaches the goal, negative if it's headed the other way, the same as
+     * {@link #hitTime(Ball, Racket)}
+     */
+    int predict(Ball ball, Racket racket) {
+        boolean fixed = ball.isFixedPoint();
+        int x = fixed ? ball.getFixedX() : Float.floatToRawIntBits(ball.position.getX());
+        int y = fixed ? ball.getFixedY() : Float.floatToRawIntBits(ball.position.getY());
+        int speedX = fixed ? ball.getFixedSpeedX() : Float.floatToRawIntBits(ball.speed.getX());
+        int speedY = fixed ? ball.getFixedSpeedY() : Float.floatToRawIntBits(ball.speed.getY());
+        if (fixed != fixedPoint || x != keyX || y != keyY || speedX != keySpeedX || speedY != keySpeedY) {
+            fixedPoint = fixed;
+            keyX = x;
+            keyY = y;
+            keySpeedX = speedX;
+            keySpeedY = speedY;
+            goalX[0] = goalX[1] = Float.NaN;
+        }
+        int goal = (racket.side == 1) ? 0 : 1;
+        // NaN is equal to nothing, so a goal without a prediction is always calculated
+        if (goalX[goal] != racket.x) {
+            int t = hitTime(ball, racket);
+            hitTimes[goal] = t;
+            intercepts[goal] = ballY(ball, t);
+            goalX[goal] = racket.x;
+        }
+        lastGoal = goal;
+        return hitTimes[goal];
+    }
+
+    /**
+     * @return the y of the ball when it reaches the goal of the last prediction, the same as
+     * {@link #ballY(Ball, int)} at the hit time
+     */
+    float predictedY() {
+        return intercepts[lastGoal];
+    }
+
+    /**
+     * Writes the targets of a racket that goes where the ball goes : if the racket can foresee the hit, the y of the
+     * ball at the hit time everywhere, otherwise where the ball is after it went as far as the racket can foresee,
+     * then 10 ticks later, and so on until the hit time. The ball must be headed to the goal of the racket.
+     * @param ball the ball, with the physics it uses
+     * @param tf the hit time, in ticks, see {@link #hitTime(Ball, Racket)}
+     * @param intercept the y of the ball at the hit time, see {@link #ballY(Ball, int)}
+     * @param foresight how far the racket can foresee, in pixels
+     * @param targets where the targets are written, of length {@link ComputerPlayer#MAX_TARGETS} at least
+     * @param offset subtracted from every target
+     * @return the number of targets written
+     */
+    static int targets(Ball ball, int tf, float intercept, int foresight, float[] targets, float offset) {
+        // one target for every 10 ticks until the hit, plus 1 for the rounding
+        int length = Math.max(0, Math.min(tf / 10 + 1, ComputerPlayer.MAX_TARGETS));
+        if (tf <= foresight) {
+            Arrays.fill(targets, 0, length, intercept - offset);
+        } else if (ball.isFixedPoint()) {
+            int y0 = ball.getFixedY(), vy = ball.getFixedSpeedY();
+            long sight = FixedPoint.div(FixedPoint.fromInt(foresight), ball.getFixedSpeedX());
+            for (int i = 0; i < length; i++) {
+                long t = Math.min(sight + FixedPoint.fromInt(i * 10), FixedPoint.fromInt(tf));
+                targets[i] = FixedPoint.toFloat(ballYFixed(y0, vy, t)) - offset;
+            }
+        } else {
+            float y0 = ball.position.getY(), vy = ball.speed.getY();
+            float sight = foresight / ball.speed.getX();
+            for (int i = 0; i < length; i++) {
+                float t = Math.min(sight + i * 10, tf);
+                targets[i] = ballY(y0, vy, t) - offset;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Calculates in how many ticks the ball reaches the goal of a racket, with the physics of the ball.
+     * @return the number of ticks, negative if the ball is headed the other way
+     */
+    static int hitTime(Ball ball, Racket racket) {
+        if (ball.isFixedPoint()) return hitTimeFixed(ball.getFixedX(), ball.getFixedSpeedX(), racket);
+        return (int) ((racket.x - ball.position.getX() + Ball.RADIUS * racket.side) / ball.speed.getX());
+    }
+
+    /**
+     * Calculates the y of the ball in t ticks, with the physics of the ball.
+     */
+    static float ballY(Ball ball, int t) {
+        if (ball.isFixedPoint()) {
+            return FixedPoint.toFloat(ballYFixed(ball.getFixedY(), ball.getFixedSpeedY(), FixedPoint.fromInt(t)));
+        }
+        return ballY(ball.position.getY(), ball.speed.getY(), t);
+    }
+
+    /**
+     * Calculates the position of the ball with the bounces at the time t.
+     * Works with negative time, theoretically (although that might not be very useful).
+     * @param y0 y position at t = 0
+     * @param vy vertical speed of the ball
+     * @param t time in tick, t = 0 being the current tick
+     * @return y(t), with (exact) calculations of the bounces.
+     */
+    private static float ballY(float y0, float vy, float t) {
+        // the distance of the height accessible to the center of the ball
+        float h = Game.HEIGHT - 2 * Ball.RADIUS;
+        // the period of the bounce (at the end of which the ball is at the same y with the same speed as
+        // at the beginning)
+        float p = 2 * h;
+        float yDist = y0 + vy * t;
+        float m = yDist % p;
+        if (m < 0) m += p;
+        float yInside = (m <= h) ? m : (p - m);
+        // we add the radius of the ball because the calculations is off by the radius of the ball
+        return yInside + Ball.RADIUS;
+    }
+
+    /**
+     * The same as {@link #ballY(float, float, float)} in fixed point, see {@link FixedPoint}.
+     * @param y0 y position at t = 0, in Q16.16
+     * @param vy vertical speed of the ball, in Q16.16
+     * @param t time in ticks in Q16.16, at most {@link #MAX_FIXED_HIT_TIME} ticks
+     * @return y(t) in Q16.16
+     */
+    private static int ballYFixed(int y0, int vy, long t) {
+        long h = FixedPoint.fromInt(Game.HEIGHT - 2 * Ball.RADIUS);
+        long p = 2 * h;
+        long m = Math.floorMod(y0 + (vy * t >> FixedPoint.FRACTION_BITS), p);
+        long yInside = (m <= h) ? m : (p - m);
+        return (int) (yInside + FixedPoint.fromInt(Ball.RADIUS));
+    }
+
+    /**
+     * Calculates, in fixed point, in how many ticks the ball reaches the goal of a racket.
+     * @param x0 the x of the ball, in Q16.16
+     * @param vx the horizontal speed of the ball, in Q16.16
+     * @return the number of ticks before the ball hits the goal, rounded toward 0
+     */
+    private static int hitTimeFixed(int x0, int vx, Racket racket) {
+        long distance = (long) FixedPoint.fromFloat(racket.x) - x0
+                + (long) FixedPoint.fromInt(Ball.RADIUS) * racket.side;
+        if (vx == 0) return (distance == 0) ? 0 : (distance > 0) ? MAX_FIXED_HIT_TIME : -MAX_FIXED_HIT_TIME;
+        return (int) Math.max(-MAX_FIXED_HIT_TIME, Math.min(MAX_FIXED_HIT_TIME, distance / vx));
+    }
+}
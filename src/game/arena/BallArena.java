@@ -0,0 +1,404 @@
+package game.arena;
+
+import game.Ball;
+import game.Game;
+import game.Racket;
+import game.SplitMix64;
+import game.Vector2D;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Thousands of balls bouncing at the same time, for the multi-ball mode. The balls are not {@link Ball} objects : they
+ * are stored as a struct of arrays, one array of floats per coordinate, so updating them is a loop over a few arrays
+ * the CPU reads sequentially, without any object to follow nor any allocation. A {@link BallKernel} moves the balls
+ * that fly between the rackets, several at a time with SIMD if it's enabled, and for the others a
+ * {@link CollisionGrid} tells what they may hit this tick.
+ * <p>
+ * The balls collide with the walls and the rackets exactly like the ball of the match (swept collisions, same bounce
+ * and same speed up), but not with each other. A ball that reaches a goal gives a point to the other side and is
+ * served again from the center. The serves are random, from a seeded generator, so an arena is deterministic.
+ * <p>
+ * With enough balls, the update is split into chunks of balls moved in parallel on a {@link ForkJoinPool}. The chunks
+ * only write their own balls and only note the goals and the hits, which are then counted and served again in the
+ * order of the balls once every chunk is done. So a parallel update gives exactly the same arena as a sequential one.
+ */
+public class BallArena {
+    private static final int MAX_IMPACTS_PER_TICK = 64;
+    private static final float SERVE_SPEED = 2;
+    /**
+     * The serves go at most this angle (45°) away from the horizontal
+     */
+    private static final double SERVE_ANGLE = Math.PI / 4;
+    /**
+     * Below this many balls, the update is sequential : a tick of a few thousand balls takes less time than waking up
+     * the threads of the pool
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 50_000;
+    /**
+     * The number of chunks per thread of the pool, more than one so a thread that's done can take the work of a slower
+     * one
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final float[] x, y, vx, vy;
+    private int count = 0;
+    private final CollisionGrid grid = new CollisionGrid();
+    private BallKernel kernel = BallKernel.select();
+    /**
+     * The balls the kernel left to the narrow phase this tick
+     */
+    private final int[] pending;
+    /**
+     * The balls that reached a goal this tick, written by each chunk after its first ball
+     */
+    private final int[] goals;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+    private int parallelThreshold = Integer.getInteger("pong.parallelThreshold", DEFAULT_PARALLEL_THRESHOLD);
+    private Chunk[] chunks;
+    private final Chunk all = new Chunk();
+    private final Step step = new Step();
+    /**
+     * What the chunks need to know about the tick, set before they run
+     */
+    private Racket player1, player2;
+    private float left, right;
+    private final SplitMix64 random;
+    private int pointsPlayer1 = 0, pointsPlayer2 = 0;
+    private long hits = 0;
+
+    /**
+     * @param capacity the most balls the arena can hold
+     * @param seed the seed of the serves
+     */
+    public BallArena(int capacity, long seed) {
+        x = new float[capacity];
+        y = new float[capacity];
+        vx = new float[capacity];
+        vy = new float[capacity];
+        pending = new int[capacity];
+        goals = new int[capacity];
+        chunks = createChunks(pool);
+        random = new SplitMix64(seed);
+    }
+
+    /**
+     * Creates an arena full of balls, all served from the center at once.
+     * @param balls the number of balls
+     * @param seed the seed of the serves
+     * @return the new arena
+     */
+    public static BallArena served(int balls, long seed) {
+        BallArena arena = new BallArena(balls, seed);
+        for (int i = 0; i < balls; i++) arena.serve();
+        return arena;
+    }
+
+    /**
+     * Adds a ball.
+     * @return the index of the ball
+     * @throws IllegalStateException if the arena is full
+     */
+    public int add(float x, float y, float vx, float vy) {
+        if (count == this.x.length) {
+            throw new IllegalStateException("the arena can't hold more than " + count + " balls");
+        }
+        this.x[count] = x;
+        this.y[count] = y;
+        this.vx[count] = vx;
+        this.vy[count] = vy;
+        return count++;
+    }
+
+    /**
+     * Adds a ball in the center of the field, going to a random side with a random angle.
+     * @return the index of the ball
+     */
+    public int serve() {
+        int i = add(0, 0, 0, 0);
+        serve(i);
+        return i;
+    }
+
+    private void serve(int i) {
+        double angle = (2 * random.nextDouble() - 1) * SERVE_ANGLE;
+        float side = (random.nextDouble() < 0.5) ? -1 : 1;
+        x[i] = Game.WIDTH / 2f;
+        y[i] = Game.HEIGHT / 2f;
+        vx[i] = (float) (SERVE_SPEED * Math.cos(angle)) * side;
+        vy[i] = (float) (SERVE_SPEED * Math.sin(angle));
+    }
+
+    /**
+     * Removes a ball, the last ball takes its index.
+     * @param i the index of the ball
+     */
+    public void remove(int i) {
+        if (i < 0 || i >= count) throw new IndexOutOfBoundsException(i);
+        count--;
+        x[i] = x[count];
+        y[i] = y[count];
+        vx[i] = vx[count];
+        vy[i] = vy[count];
+    }
+
+    /**
+     * Moves every ball for one tick.
+     * @param player1 the left racket
+     * @param player2 the right racket
+     */
+    public void update(Racket player1, Racket player2) {
+        grid.update(player1, player2);
+        this.player1 = player1;
+        this.player2 = player2;
+        // a ball whose center stays in between can't touch a racket, even its corners
+        left = player1.getCenterX() + Racket.WIDTH / 2f + Ball.RADIUS;
+        right = player2.getCenterX() - Racket.WIDTH / 2f - Ball.RADIUS;
+
+        if (count < parallelThreshold) {
+            all.from = 0;
+            all.to = count;
+            all.moveBalls();
+            score(all);
+        } else {
+            for (int c = 0; c < chunks.length; c++) {
+                Chunk chunk = chunks[c];
+                chunk.from = (int) ((long) count * c / chunks.length);
+                chunk.to = (int) ((long) count * (c + 1) / chunks.length);
+                chunk.reinitialize();
+            }
+            step.reinitialize();
+            pool.invoke(step);
+            for (Chunk chunk : chunks) score(chunk);
+        }
+    }
+
+    /**
+     * Counts the hits and the goals of a chunk, and serves again its balls that reached a goal. It's always done in
+     * the order of the balls, since the serves are random.
+     */
+    private void score(Chunk chunk) {
+        hits += chunk.hits;
+        for (int k = chunk.from; k < chunk.goalsEnd; k++) {
+            int i = goals[k];
+            // like Ball.touchDown()
+            if (x[i] <= Ball.RADIUS) pointsPlayer2++;
+            else pointsPlayer1++;
+            serve(i);
+        }
+    }
+
+    /**
+     * The balls of indices from {@code from} to {@code to}, moved by a thread of the pool, or by the thread calling
+     * {@link #update(Racket, Racket)} when the update is sequential.
+     */
+    private final class Chunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private int from, to;
+        /**
+         * The goals of the chunk are in {@code goals} from {@code from} to this index
+         */
+        private int goalsEnd;
+        private int hits;
+        /**
+         * The ball bouncing on a racket, for {@link Ball#bounceOnRacket(Vector2D, Vector2D, float, float, int)}
+         */
+        private final transient Vector2D position = new Vector2D(), speed = new Vector2D();
+
+        @Override
+        protected void compute() {
+            moveBalls();
+        }
+
+        private void moveBalls() {
+            final float[] x = BallArena.this.x, y = BallArena.this.y, vx = BallArena.this.vx, vy = BallArena.this.vy;
+            // the chunk can have at most as many pending balls and goals as balls, so it uses the same indices
+            int pendingEnd = kernel.step(x, y, vx, vy, from, to, left, right, pending, from);
+            goalsEnd = from;
+            hits = 0;
+            for (int k = from; k < pendingEnd; k++) {
+                int i = pending[k];
+                float px = x[i], py = y[i];
+                float nx = px + vx[i], ny = py + vy[i];
+                int colliders = grid.colliders(Math.min(px, nx), Math.min(py, ny), Math.max(px, nx), Math.max(py, ny));
+                if (colliders == 0) {
+                    x[i] = nx;
+                    y[i] = ny;
+                } else hits += BallArena.this.move(i, colliders, player1, player2, position, speed);
+
+                // the goals can only be reached by the balls the kernel left
+                if (x[i] <= Ball.RADIUS || x[i] >= Game.WIDTH - Ball.RADIUS) goals[goalsEnd++] = i;
+            }
+        }
+    }
+
+    /**
+     * Runs every chunk in the pool, and returns once they're all done.
+     */
+    private final class Step extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        @Override
+        protected void compute() {
+            ForkJoinTask.invokeAll(chunks);
+        }
+    }
+
+    /**
+     * Chooses how the update is made parallel.
+     * @param pool the pool the chunks run on, the common pool by default
+     * @param parallelThreshold the update is sequential below this many balls, {@link #DEFAULT_PARALLEL_THRESHOLD} by
+     *                          default or the value of the system property {@code pong.parallelThreshold}
+     */
+    public void setParallelism(ForkJoinPool pool, int parallelThreshold) {
+        this.pool = pool;
+        this.parallelThreshold = parallelThreshold;
+        chunks = createChunks(pool);
+    }
+
+    /**
+     * @return the chunks of a parallel update on the pool, {@link #CHUNKS_PER_THREAD} per thread
+     */
+    private Chunk[] createChunks(ForkJoinPool pool) {
+        Chunk[] chunks = new Chunk[pool.getParallelism() * CHUNKS_PER_THREAD];
+        for (int c = 0; c < chunks.length; c++) chunks[c] = new Chunk();
+        return chunks;
+    }
+
+    /**
+     * Replaces the kernel chosen by {@link BallKernel#select()}, for instance to compare them.
+     * @param kernel the kernel moving the balls between the rackets
+     */
+    public void setKernel(BallKernel kernel) {
+        this.kernel = kernel;
+    }
+
+    public BallKernel getKernel() {
+        return kernel;
+    }
+
+    /**
+     * The narrow phase, for a ball that may hit something this tick : the same swept collisions as {@link Ball}, but
+     * only against the colliders the grid found. Only the ball i is written, so balls can be moved in parallel.
+     * @param position a vector of the calling chunk, used by the bounces
+     * @param speed a vector of the calling chunk, used by the bounces
+     * @return the number of times the ball hit a racket
+     */
+    private int move(int i, int colliders, Racket player1, Racket player2, Vector2D position, Vector2D speed) {
+        int racketHits = 0;
+        float remaining = 1;
+        for (int impacts = 0; impacts < MAX_IMPACTS_PER_TICK; impacts++) {
+            float px = x[i], py = y[i], sx = vx[i], sy = vy[i];
+            float first = Ball.NO_IMPACT;
+            int hit = 0;
+            if (sy < 0 && (colliders & CollisionGrid.UPPER_WALL) != 0) {
+                float t = Math.max(0, (Ball.RADIUS - py) / sy);
+                if (t <= remaining) {
+                    first = t;
+                    hit = CollisionGrid.UPPER_WALL;
+                }
+            } else if (sy > 0 && (colliders & CollisionGrid.LOWER_WALL) != 0) {
+                float t = Math.max(0, (Game.HEIGHT - Ball.RADIUS - py) / sy);
+                if (t <= remaining) {
+                    first = t;
+                    hit = CollisionGrid.LOWER_WALL;
+                }
+            }
+            if ((colliders & CollisionGrid.PLAYER1) != 0) {
+                float t = Ball.racketImpact(px, py, sx, sy, player1, (first == Ball.NO_IMPACT) ? remaining : first);
+                if (t != Ball.NO_IMPACT && (first == Ball.NO_IMPACT || t < first)) {
+                    first = t;
+                    hit = CollisionGrid.PLAYER1;
+                }
+            }
+            if ((colliders & CollisionGrid.PLAYER2) != 0) {
+                float t = Ball.racketImpact(px, py, sx, sy, player2, (first == Ball.NO_IMPACT) ? remaining : first);
+                if (t != Ball.NO_IMPACT && (first == Ball.NO_IMPACT || t < first)) {
+                    first = t;
+                    hit = CollisionGrid.PLAYER2;
+                }
+            }
+            if (first == Ball.NO_IMPACT) {
+                x[i] = px + sx * remaining;
+                y[i] = py + sy * remaining;
+                return racketHits;
+            }
+            x[i] = px + sx * first;
+            y[i] = py + sy * first;
+            remaining -= first;
+            switch (hit) {
+                case CollisionGrid.UPPER_WALL -> {
+                    vy[i] = -sy;
+                    y[i] = Ball.RADIUS;
+                }
+                case CollisionGrid.LOWER_WALL -> {
+                    vy[i] = -sy;
+                    y[i] = Game.HEIGHT - Ball.RADIUS;
+                }
+                case CollisionGrid.PLAYER1 -> {
+                    bounceOnRacket(i, player1, position, speed);
+                    racketHits++;
+                }
+                case CollisionGrid.PLAYER2 -> {
+                    bounceOnRacket(i, player2, position, speed);
+                    racketHits++;
+                }
+            }
+            // after a bounce, the ball may go anywhere
+            colliders = CollisionGrid.UPPER_WALL | CollisionGrid.LOWER_WALL
+                    | CollisionGrid.PLAYER1 | CollisionGrid.PLAYER2;
+        }
+        y[i] = Math.min(Game.HEIGHT - Ball.RADIUS, Math.max(Ball.RADIUS, y[i]));
+        return racketHits;
+    }
+
+    /**
+     * The same bounce as the ball of the match, see {@link Ball#bounceOnRacket(Vector2D, Vector2D, float, float, int)}.
+     */
+    private void bounceOnRacket(int i, Racket player, Vector2D position, Vector2D speed) {
+        position.set(x[i], y[i]);
+        speed.set(vx[i], vy[i]);
+        Ball.bounceOnRacket(position, speed, player.getCenterX(), player.getCenterY(), player.side);
+        x[i] = position.getX();
+        vx[i] = speed.getX();
+        vy[i] = speed.getY();
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public float getX(int i) {
+        return x[i];
+    }
+
+    public float getY(int i) {
+        return y[i];
+    }
+
+    /**
+     * Copies the positions of the balls, for rendering.
+     * @param xs where the x are copied, at least {@link #size()} long
+     * @param ys where the y are copied, at least {@link #size()} long
+     */
+    public void copyPositions(float[] xs, float[] ys) {
+        System.arraycopy(x, 0, xs, 0, count);
+        System.arraycopy(y, 0, ys, 0, count);
+    }
+
+    public int getPointsPlayer1() {
+        return pointsPlayer1;
+    }
+
+    public int getPointsPlayer2() {
+        return pointsPlayer2;
+    }
+
+    /**
+     * @return how many times a ball hit a racket since the arena was created
+     */
+    public long getHits() {
+        return hits;
+    }
+}
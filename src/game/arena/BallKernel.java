@@ -0,0 +1,62 @@
+package game.arena;
+
+/**
+ * The bulk of a tick of a {@link BallArena} : moving the balls that fly freely, between the rackets, and bouncing them
+ * on the walls. The balls that may hit a racket or reach a goal this tick are left untouched and listed for the
+ * narrow phase of the arena. There are 2 implementations, which give exactly the same results : a plain loop and a
+ * SIMD one using the Vector API, see {@link #select()}.
+ */
+public interface BallKernel {
+    /**
+     * Moves the balls by their speed, reflecting them on the walls, as long as their move stays strictly between
+     * {@code left} and {@code right} and bounces at most once. The reflection is exact : a ball going
+     * past a wall by d ends d away from it.
+     * @param x the x of the balls
+     * @param y the y of the balls
+     * @param vx the horizontal speeds
+     * @param vy the vertical speeds
+     * @param from the first ball
+     * @param to the ball after the last one
+     * @param left the lowest x of a move that can't hit the left racket (exclusive)
+     * @param right the highest x of a move that can't hit the right racket (exclusive)
+     * @param pending where the indices of the balls that were not moved are written, after the first
+     *                {@code pendingCount} ones
+     * @param pendingCount the number of balls already in {@code pending}
+     * @return the number of balls in {@code pending}
+     */
+    int step(float[] x, float[] y, float[] vx, float[] vy, int from, int to, float left, float right,
+             int[] pending, int pendingCount);
+
+    /**
+     * @return the name shown in the benchmarks
+     */
+    String name();
+
+    /**
+     * Chooses the kernel with the system property {@code pong.ballKernel} : {@code vector} for the SIMD kernel, which
+     * needs the JVM to be started with {@code --add-modules jdk.incubator.vector}, or {@code scalar} (the default). If
+     * the SIMD kernel can't be loaded, the scalar one is used instead.
+     * @return the kernel to use
+     */
+    static BallKernel select() {
+        if ("vector".equals(System.getProperty("pong.ballKernel", "scalar"))) {
+            BallKernel vector = vector();
+            if (vector != null) return vector;
+            System.err.println("The Vector API is not available, start with --add-modules jdk.incubator.vector");
+        }
+        return new ScalarBallKernel();
+    }
+
+    /**
+     * Loads the SIMD kernel by reflection, so the classes referring to the incubator module are only loaded if it's
+     * there.
+     * @return the SIMD kernel, or null if the Vector API is not available
+     */
+    static BallKernel vector() {
+        try {
+            return (BallKernel) Class.forName("game.arena.VectorBallKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
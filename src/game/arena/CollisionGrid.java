@@ -0,0 +1,80 @@
+package game.arena;
+
+import game.Ball;
+import game.Game;
+import game.Racket;
+
+/**
+ * A uniform grid over the field, used as the broadphase of a {@link BallArena} : each cell holds a bitset of the
+ * colliders (walls and rackets) a ball moving inside the cell could hit. A ball only runs the exact (and expensive)
+ * collision tests if the cells its move covers hold something, which is rare since most of the field is empty.
+ * The walls never move, so they're marked once, the rackets are marked again every tick with {@link #update}.
+ */
+public class CollisionGrid {
+    public static final int UPPER_WALL = 1, LOWER_WALL = 1 << 1, PLAYER1 = 1 << 2, PLAYER2 = 1 << 3;
+    /**
+     * The side of a cell, in pixels
+     */
+    public static final int CELL = 32;
+    private static final float INVERSE_CELL = 1f / CELL;
+    final int columns = (Game.WIDTH + CELL - 1) / CELL;
+    final int rows = (Game.HEIGHT + CELL - 1) / CELL;
+    private final int[] walls = new int[columns * rows];
+    private final int[] cells = new int[columns * rows];
+
+    public CollisionGrid() {
+        // a ball hits a wall once its center is closer than its radius to it
+        mark(walls, 0, 0, Game.WIDTH, Ball.RADIUS, UPPER_WALL);
+        mark(walls, 0, Game.HEIGHT - Ball.RADIUS, Game.WIDTH, Game.HEIGHT, LOWER_WALL);
+    }
+
+    /**
+     * Marks the cells covered by the rackets, inflated by the radius of a ball since it's the center of the ball that
+     * is tested.
+     * @param player1 the left racket
+     * @param player2 the right racket
+     */
+    public void update(Racket player1, Racket player2) {
+        System.arraycopy(walls, 0, cells, 0, cells.length);
+        markRacket(player1, PLAYER1);
+        markRacket(player2, PLAYER2);
+    }
+
+    private void markRacket(Racket player, int bit) {
+        mark(cells, player.x - Ball.RADIUS, player.y - Ball.RADIUS,
+                player.x + Racket.WIDTH + Ball.RADIUS, player.y + Racket.HEIGHT + Ball.RADIUS, bit);
+    }
+
+    private void mark(int[] grid, float x1, float y1, float x2, float y2, int bit) {
+        int c1 = column(x1), c2 = column(x2);
+        int r1 = row(y1), r2 = row(y2);
+        for (int r = r1; r <= r2; r++) {
+            for (int c = c1; c <= c2; c++) grid[r * columns + c] |= bit;
+        }
+    }
+
+    /**
+     * @return the colliders of the cells covered by the rectangle, a ball moving inside it can only hit those
+     */
+    public int colliders(float x1, float y1, float x2, float y2) {
+        int c1 = column(x1), c2 = column(x2);
+        int r1 = row(y1), r2 = row(y2);
+        // most moves stay in a single cell
+        if (c1 == c2 && r1 == r2) return cells[r1 * columns + c1];
+        // a very fast ball, it's faster to test everything
+        if ((c2 - c1 + 1) * (r2 - r1 + 1) > 16) return UPPER_WALL | LOWER_WALL | PLAYER1 | PLAYER2;
+        int found = 0;
+        for (int r = r1; r <= r2; r++) {
+            for (int c = c1; c <= c2; c++) found |= cells[r * columns + c];
+        }
+        return found;
+    }
+
+    private int column(float x) {
+        return Math.min(columns - 1, Math.max(0, (int) (x * INVERSE_CELL)));
+    }
+
+    private int row(float y) {
+        return Math.min(rows - 1, Math.max(0, (int) (y * INVERSE_CELL)));
+    }
+}
@@ -0,0 +1,48 @@
+package game.arena;
+
+import game.Ball;
+import game.Game;
+
+/**
+ * The plain loop version of the {@link BallKernel}, always available.
+ */
+public class ScalarBallKernel implements BallKernel {
+    static final float TOP = Ball.RADIUS;
+    static final float BOTTOM = Game.HEIGHT - Ball.RADIUS;
+
+    @Override
+    public int step(float[] x, float[] y, float[] vx, float[] vy, int from, int to, float left, float right,
+                    int[] pending, int pendingCount) {
+        return loop(x, y, vx, vy, from, to, left, right, pending, pendingCount);
+    }
+
+    /**
+     * The loop itself, also used by the SIMD kernel for the balls that don't fill a whole vector.
+     */
+    static int loop(float[] x, float[] y, float[] vx, float[] vy, int from, int to, float left, float right,
+                    int[] pending, int pendingCount) {
+        for (int i = from; i < to; i++) {
+            float px = x[i], py = y[i], sy = vy[i];
+            float nx = px + vx[i];
+            float ny = py + sy;
+            if (ny < TOP) {
+                ny = 2 * TOP - ny;
+                sy = -sy;
+            } else if (ny > BOTTOM) {
+                ny = 2 * BOTTOM - ny;
+                sy = -sy;
+            }
+            if (px > left && px < right && nx > left && nx < right && ny >= TOP && ny <= BOTTOM) {
+                x[i] = nx;
+                y[i] = ny;
+                vy[i] = sy;
+            } else pending[pendingCount++] = i;
+        }
+        return pendingCount;
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,417 @@
+package game.benchmark;
+
+import game.Ball;
+import game.ComputerPlayer;
+import game.ComputerPlayer.Difficulty;
+import game.Game;
+import game.MatchManager;
+import game.MatchState;
+import game.QPolicy;
+import game.Racket;
+import game.SplitMix64;
+import game.arena.BallArena;
+import game.arena.BallKernel;
+import game.arena.ScalarBallKernel;
+import game.keyHandling.GameActions;
+import game.keyHandling.InputHandler;
+import game.menu.LoopingList;
+import game.test.RoundedRectangle;
+
+import java.awt.Canvas;
+import java.awt.event.KeyEvent;
+import java.awt.geom.Area;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The benchmarks of the hot paths of the engine, run with {@link MicroBenchmark}. It can run headless :
+ * {@code java -Djava.awt.headless=true game.benchmark.EngineBenchmarks [filter]}, where the optional filter only runs
+ * the benchmarks whose name contains it.
+ */
+public class EngineBenchmarks {
+    private static final int FIELD_WIDTH = Game.WIDTH;
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        String filter = (args.length > 0) ? args[0] : "";
+
+        if ("Ball.update".contains(filter) || filter.isEmpty()) ballUpdate();
+        if ("ComputerPlayer.setTargetY".contains(filter) || filter.isEmpty()) computerTargets();
+        if ("ComputerPlayer tick".contains(filter) || filter.isEmpty()) computerTicks();
+        if ("ComputerPlayer.setTargetY GOD plan".contains(filter) || filter.isEmpty()) godPlans();
+        if ("nextGaussian".contains(filter) || filter.isEmpty()) gaussians();
+        if ("QPolicy lookup".contains(filter) || filter.isEmpty()) policyLookups();
+        if ("MatchManager.update".contains(filter) || filter.isEmpty()) matchUpdate();
+        if ("MatchManager.saveState".contains(filter) || filter.isEmpty()) matchState();
+        if ("BallArena.update".contains(filter) || filter.isEmpty()) ballArena();
+        if ("BallKernel.step".contains(filter) || filter.isEmpty()) ballKernels();
+        if ("BallArena.update parallel".contains(filter) || filter.isEmpty()) parallelArena();
+        if ("InputHandler".contains(filter) || filter.isEmpty()) inputHandler();
+        if ("LoopingList".contains(filter) || filter.isEmpty()) loopingList();
+        if ("RoundedRectangle".contains(filter) || filter.isEmpty()) roundedRectangle();
+    }
+
+    /**
+     * @return a headless bot-vs-bot match where the ball was just served
+     */
+    static MatchManager servedMatch(Difficulty left, Difficulty right) {
+        MatchManager match = MatchManager.headless();
+        match.startGame(left, right);
+        while (match.gameState != 1) match.update();
+        return match;
+    }
+
+    /**
+     * The ball bounces between the walls and the rackets, which stand still in the middle of the field's height, and
+     * is served again when it reaches a goal. Since the ball can't go through a racket and speeds up at each hit, it's
+     * also served again once it's faster than in a real match. It's measured with both physics.
+     */
+    private static void ballUpdate() {
+        for (boolean fixedPoint : physicsMeasured()) {
+            MatchManager match = servedMatch(Difficulty.SMART, Difficulty.SMART);
+            match.setFixedPoint(fixedPoint);
+            Ball ball = match.ball;
+            MicroBenchmark.run("Ball.update (walls and rackets, " + physics(fixedPoint) + ")", () -> {
+                ball.update();
+                if (ball.touchDown() != 0 || Math.abs(ball.speed.getX()) > 30) {
+                    ball.setPosition(FIELD_WIDTH / 2f, 120);
+                    ball.setSpeed(4, 3);
+                }
+                return Float.floatToRawIntBits(ball.position.getX());
+            });
+        }
+    }
+
+    /**
+     * @return the physics to measure : both by default, or only the one given by {@code -Dpong.fixedPoint=true|false}.
+     * The physics measured second in a JVM is slowed down by what the JIT learnt from the first one, since they share
+     * their callers, so to compare them fairly they're measured in a JVM each.
+     */
+    private static boolean[] physicsMeasured() {
+        String fixedPoint = System.getProperty("pong.fixedPoint");
+        return (fixedPoint == null) ? new boolean[] {false, true} : new boolean[] {Boolean.parseBoolean(fixedPoint)};
+    }
+
+    private static String physics(boolean fixedPoint) {
+        return fixedPoint ? "fixed point" : "float";
+    }
+
+    /**
+     * A computer calculates its targets, in one of 4096 situations
+     */
+    private static void computerTargets() {
+        for (boolean fixedPoint : physicsMeasured()) {
+            for (Difficulty d : Difficulty.values()) {
+                ComputerPlayer bot = new ComputerPlayer(-1, d);
+                bot.x = FIELD_WIDTH - Ball.RADIUS * 3 - ComputerPlayer.WIDTH;
+                Ball[] balls = new Ball[4096];
+                for (int i = 0; i < balls.length; i++) {
+                    balls[i] = new Ball(null);
+                    balls[i].setFixedPoint(fixedPoint);
+                    balls[i].setPosition(100, 120 + i % 256);
+                    balls[i].setSpeed(4, 3 + i / 256 * 0.1f);
+                }
+                int[] next = {0};
+                MicroBenchmark.run("ComputerPlayer.setTargetY (" + d + ", " + physics(fixedPoint) + ")", () -> {
+                    bot.setTargetY(balls[next[0]]);
+                    next[0] = (next[0] + 1) & (balls.length - 1);
+                    bot.goToTargetY();
+                    return Float.floatToRawIntBits(bot.y);
+                });
+            }
+        }
+    }
+
+    /**
+     * GOD plans where to hit the ball in a match, from one of 4096 situations where the ball was just hit by SMART, so
+     * the planner tries every position of its racket (a computer without a match only catches the ball like SMART)
+     */
+    private static void godPlans() {
+        for (boolean fixedPoint : physicsMeasured()) {
+            MatchManager match = servedMatch(Difficulty.SMART, Difficulty.GOD);
+            match.setFixedPoint(fixedPoint);
+            match.ball.setFixedPoint(fixedPoint);
+            ComputerPlayer bot = (ComputerPlayer) match.player2;
+            int[] next = {0};
+            MicroBenchmark.run("ComputerPlayer.setTargetY (GOD plan, " + physics(fixedPoint) + ")", () -> {
+                int i = next[0]++ & 4095;
+                match.ball.setPosition(match.player1.getCenterX() + Racket.WIDTH / 2f + Ball.RADIUS,
+                        30 + i % 256 * 1.7f);
+                match.ball.setSpeed(4 + i / 1024, (i % 2 == 0 ? 1 : -1) * (i / 256 % 4 + 0.5f));
+                bot.setTargetY(match.ball);
+                return Float.floatToRawIntBits(bot.y);
+            });
+        }
+    }
+
+    /**
+     * What a computer costs per tick : it moves toward its target every tick, and chooses new targets every 100 ticks,
+     * as if the ball was hit, from one of 4096 situations
+     */
+    private static void computerTicks() {
+        for (Difficulty d : Difficulty.values()) {
+            ComputerPlayer bot = new ComputerPlayer(-1, d);
+            bot.x = FIELD_WIDTH - Ball.RADIUS * 3 - ComputerPlayer.WIDTH;
+            Ball[] balls = new Ball[4096];
+            for (int i = 0; i < balls.length; i++) {
+                balls[i] = new Ball(null);
+                balls[i].setPosition(100, 120 + i % 256);
+                balls[i].setSpeed(4, (i % 2 == 0 ? 3 : -3) + i / 256 * 0.1f);
+            }
+            int[] tick = {0};
+            MicroBenchmark.run("ComputerPlayer tick (" + d + ")", () -> {
+                if (tick[0] % 100 == 0) bot.setTargetY(balls[tick[0] / 100 & (balls.length - 1)]);
+                tick[0]++;
+                bot.goToTargetY();
+                bot.update();
+                return Float.floatToRawIntBits(bot.y);
+            });
+        }
+    }
+
+    /**
+     * The gaussians the computers draw from, with the generator they used before (the polar method of Random) and the
+     * ziggurat of SplitMix64
+     */
+    private static void gaussians() {
+        Random legacy = new Random(1);
+        MicroBenchmark.run("Random.nextGaussian (polar method)",
+                () -> Double.doubleToRawLongBits(legacy.nextGaussian()));
+        SplitMix64 random = new SplitMix64(1);
+        MicroBenchmark.run("SplitMix64.nextGaussian (ziggurat)",
+                () -> Double.doubleToRawLongBits(random.nextGaussian()));
+    }
+
+    /**
+     * What LEARNED costs per tick to choose its move : the state of one of 4096 situations is cut into bins, then the
+     * move is read in the mapped table. With both physics, since the state uses the trajectory of the ball.
+     */
+    private static void policyLookups() {
+        QPolicy policy = QPolicy.shared();
+        if (policy == null) return;
+        for (boolean fixedPoint : physicsMeasured()) {
+            Racket racket = new Racket(-1);
+            racket.x = FIELD_WIDTH - Ball.RADIUS * 3 - Racket.WIDTH;
+            racket.y = 200;
+            Ball[] balls = new Ball[4096];
+            for (int i = 0; i < balls.length; i++) {
+                balls[i] = new Ball(null);
+                balls[i].setFixedPoint(fixedPoint);
+                balls[i].setPosition(100 + i % 64 * 10, 120 + i / 64 * 4);
+                balls[i].setSpeed((i % 2 == 0) ? 3 : -3, (i % 4 < 2 ? 2 : -2) + i / 256 * 0.1f);
+            }
+            int[] next = {0};
+            MicroBenchmark.run("QPolicy lookup (" + physics(fixedPoint) + ")", () -> {
+                Ball ball = balls[next[0]];
+                next[0] = (next[0] + 1) & (balls.length - 1);
+                return policy.action(QPolicy.state(ball, racket));
+            });
+        }
+    }
+
+    /**
+     * A whole tick of a bot-vs-bot match, including the serves and the countdowns, with both physics
+     */
+    private static void matchUpdate() {
+        for (boolean fixedPoint : physicsMeasured()) {
+            MatchManager match = MatchManager.headless();
+            match.setFixedPoint(fixedPoint);
+            match.startGame(Difficulty.OKAY, Difficulty.SMART);
+            MicroBenchmark.run("MatchManager.update (OKAY vs SMART, " + physics(fixedPoint) + ")", () -> {
+                match.update();
+                if (match.isOver()) match.startGame(Difficulty.OKAY, Difficulty.SMART);
+                return match.gameState;
+            });
+        }
+    }
+
+    /**
+     * Saving and restoring a match in the middle of a rally, with 2 computers that calculate sequences of targets
+     */
+    private static void matchState() {
+        MatchManager match = servedMatch(Difficulty.THICKHEAD, Difficulty.OKAY);
+        for (int i = 0; i < 150; i++) match.update();
+        MatchState state = new MatchState();
+        MicroBenchmark.run("MatchManager.saveState", () -> {
+            match.saveState(state);
+            return match.gameState;
+        });
+        MicroBenchmark.run("MatchManager.restoreState", () -> {
+            match.restoreState(state);
+            return match.gameState;
+        });
+    }
+
+    /**
+     * A tick of the multi-ball mode with 10,000 balls, which must fit 100 times in a second on a single core to keep up
+     * with the tick rate. The bots keep playing, so the rackets move. It's measured with each kernel.
+     */
+    private static void ballArena() {
+        for (BallKernel kernel : kernels()) {
+            MatchManager match = servedMatch(Difficulty.SMART, Difficulty.SMART);
+            int balls = 10_000;
+            BallArena arena = BallArena.served(balls, 42);
+            arena.setKernel(kernel);
+            // spreads the balls over the field before measuring
+            for (int i = 0; i < 500; i++) arena.update(match.player1, match.player2);
+            MicroBenchmark.Result r = MicroBenchmark.run(
+                    "BallArena.update (" + balls + " balls, " + kernel.name() + ")", () -> {
+                match.update();
+                if (match.isOver()) match.startGame(Difficulty.SMART, Difficulty.SMART);
+                arena.update(match.player1, match.player2);
+                return arena.size();
+            });
+            System.out.printf("    %.1f ns per ball, %.0f%% of a 10 ms tick%n",
+                    1E9 / r.opsPerSecond() / balls, 100 * 1E9 / r.opsPerSecond() / 1E7);
+        }
+    }
+
+    /**
+     * A tick of 200,000 balls, sequential then split into chunks on the common pool, to see from how many balls the
+     * parallel update pays off on this machine.
+     */
+    private static void parallelArena() {
+        int balls = 200_000;
+        int threads = ForkJoinPool.commonPool().getParallelism();
+        for (int threshold : new int[] {Integer.MAX_VALUE, 0}) {
+            MatchManager match = servedMatch(Difficulty.SMART, Difficulty.SMART);
+            BallArena arena = BallArena.served(balls, 42);
+            arena.setParallelism(ForkJoinPool.commonPool(), threshold);
+            for (int i = 0; i < 200; i++) arena.update(match.player1, match.player2);
+            String name = (threshold == 0) ? "parallel, " + threads + " threads" : "sequential";
+            MicroBenchmark.run("BallArena.update (" + balls + " balls, " + name + ")", () -> {
+                match.update();
+                if (match.isOver()) match.startGame(Difficulty.SMART, Difficulty.SMART);
+                arena.update(match.player1, match.player2);
+                return arena.size();
+            });
+        }
+    }
+
+    /**
+     * The kernels alone, on the same balls, with no racket in the way so every ball is moved by the kernel. Before
+     * that, two arenas with the same serves, one per kernel, play a few thousand ticks to check that the kernels give
+     * the same positions to the bit.
+     */
+    private static void ballKernels() {
+        BallKernel[] kernels = kernels();
+        if (kernels.length < 2) {
+            System.out.println("BallKernel.step : the Vector API is not available, "
+                    + "run with --add-modules jdk.incubator.vector");
+            return;
+        }
+        MatchManager match = servedMatch(Difficulty.SMART, Difficulty.SMART);
+        BallArena scalar = BallArena.served(10_000, 7);
+        BallArena vector = BallArena.served(10_000, 7);
+        scalar.setKernel(kernels[0]);
+        vector.setKernel(kernels[1]);
+        boolean same = true;
+        for (int tick = 0; tick < 5000 && same; tick++) {
+            match.update();
+            if (match.isOver()) match.startGame(Difficulty.SMART, Difficulty.SMART);
+            scalar.update(match.player1, match.player2);
+            vector.update(match.player1, match.player2);
+            for (int i = 0; i < scalar.size(); i++) {
+                same &= Float.floatToRawIntBits(scalar.getX(i)) == Float.floatToRawIntBits(vector.getX(i))
+                        && Float.floatToRawIntBits(scalar.getY(i)) == Float.floatToRawIntBits(vector.getY(i));
+            }
+        }
+        System.out.println("BallKernel.step : same results with both kernels : " + same);
+
+        int balls = 10_000;
+        BallArena arena = BallArena.served(balls, 42);
+        float[] x = new float[balls], y = new float[balls], vx = new float[balls], vy = new float[balls];
+        arena.copyPositions(x, y);
+        for (int i = 0; i < balls; i++) {
+            // the speeds are not given by the arena, any will do as long as it's the same for both kernels
+            double angle = i * 0.618;
+            vx[i] = (float) (4 * Math.cos(angle));
+            vy[i] = (float) (4 * Math.sin(angle));
+        }
+        int[] pending = new int[balls];
+        double[] opsPerSecond = new double[kernels.length];
+        for (int k = 0; k < kernels.length; k++) {
+            BallKernel kernel = kernels[k];
+            float[] kx = x.clone(), ky = y.clone(), kvx = vx.clone(), kvy = vy.clone();
+            opsPerSecond[k] = MicroBenchmark.run("BallKernel.step (" + balls + " balls, " + kernel.name() + ")",
+                    () -> kernel.step(kx, ky, kvx, kvy, 0, balls, -Float.MAX_VALUE, Float.MAX_VALUE, pending, 0)
+            ).opsPerSecond();
+        }
+        System.out.printf("    the vector kernel is %.2fx as fast as the scalar one%n",
+                opsPerSecond[1] / opsPerSecond[0]);
+    }
+
+    /**
+     * @return the scalar kernel, then the vector one if the Vector API is available
+     */
+    private static BallKernel[] kernels() {
+        BallKernel vector = BallKernel.vector();
+        return (vector == null)
+                ? new BallKernel[] {new ScalarBallKernel()}
+                : new BallKernel[] {new ScalarBallKernel(), vector};
+    }
+
+    private static void inputHandler() {
+        Canvas canvas = new Canvas();
+        InputHandler<GameActions> input = new InputHandler<>(canvas);
+        input.keyPressed(new KeyEvent(canvas, KeyEvent.KEY_PRESSED, 0, 0, KeyEvent.VK_UP, KeyEvent.CHAR_UNDEFINED));
+        input.update();
+        GameActions[] actions = GameActions.values();
+        MicroBenchmark.run("InputHandler.actionActivated (all actions)", () -> {
+            long n = 0;
+            for (GameActions a : actions) if (input.actionActivated(a)) n++;
+            return n;
+        });
+        MicroBenchmark.run("InputHandler.actionJustPressed (all actions)", () -> {
+            long n = 0;
+            for (GameActions a : actions) if (input.actionJustPressed(a)) n++;
+            return n;
+        });
+        MicroBenchmark.run("InputHandler.update (no event)", () -> {
+            input.update();
+            return 1;
+        });
+        // the events come from the AWT event thread in the game, here the same thread sends and reads them
+        KeyEvent press = new KeyEvent(canvas, KeyEvent.KEY_PRESSED, 0, 0, KeyEvent.VK_Z, KeyEvent.CHAR_UNDEFINED);
+        KeyEvent release = new KeyEvent(canvas, KeyEvent.KEY_RELEASED, 0, 0, KeyEvent.VK_Z, KeyEvent.CHAR_UNDEFINED);
+        MicroBenchmark.run("InputHandler key events (press + release + update)", () -> {
+            input.keyPressed(press);
+            input.keyReleased(release);
+            input.update();
+            return 1;
+        });
+        // what a tick costs : the update, then every action read the 3 ways
+        MicroBenchmark.run("InputHandler tick (update + 3 reads of all actions)", () -> {
+            input.update();
+            long n = 0;
+            for (GameActions a : actions) {
+                if (input.actionActivated(a)) n++;
+                if (input.actionJustPressed(a)) n++;
+                if (input.actionJustReleased(a)) n++;
+            }
+            return n;
+        });
+    }
+
+    private static void loopingList() {
+        LoopingList<Integer> list = new LoopingList<>(0, 1, 2, 3, 4, 5, 6, 7);
+        MicroBenchmark.run("LoopingList.iterator (8 items)", () -> {
+            long n = 0;
+            for (Integer i : list) n += i;
+            return n;
+        });
+        MicroBenchmark.run("LoopingList.next", () -> list.next());
+        Integer extra = 8;
+        MicroBenchmark.run("LoopingList.add + remove", () -> {
+            list.add(extra);
+            return list.remove(extra) ? 1 : 0;
+        });
+    }
+
+    private static void roundedRectangle() {
+        MicroBenchmark.run("RoundedRectangle.getHollowRoundedRect", () -> {
+            Area a = RoundedRectangle.getHollowRoundedRect(5, 5, 150, 60, 0.7f, 5);
+            return a.isEmpty() ? 0 : 1;
+        });
+    }
+}
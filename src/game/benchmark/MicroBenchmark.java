@@ -0,0 +1,105 @@
+package game.benchmark;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * A small benchmark harness, so the hot paths of the engine can be measured without any dependency. Like JMH, it warms
+ * the code up before measuring, runs several measurement iterations and consumes the results of the measured operation
+ * so the JIT can't remove it. For each benchmark it reports the throughput (operations per second, with the spread
+ * between iterations) and the allocation rate (bytes allocated per operation, measured with
+ * {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)}), which is what JMH's gc profiler reports as
+ * {@code gc.alloc.rate.norm}.
+ * <pre>{@code
+ * MicroBenchmark.run("Ball.update", () -> {
+ *     ball.update();
+ *     return (long) ball.position.getX();
+ * });}</pre>
+ * The duration of the iterations can be changed with the system property {@code pong.benchmarkMillis} (per iteration,
+ * 500 by default).
+ */
+public final class MicroBenchmark {
+
+    /**
+     * The measured operation. It returns a value that depends on its work, so the JIT can't regard it as dead code.
+     */
+    @FunctionalInterface
+    public interface Operation {
+        long run();
+    }
+
+    /**
+     * The result of a benchmark, everything is averaged over the measurement iterations.
+     * @param name the name of the benchmark
+     * @param opsPerSecond the average throughput
+     * @param opsPerSecondError half the difference between the best and the worst iterations
+     * @param bytesPerOp the average number of bytes allocated per operation
+     */
+    public record Result(String name, double opsPerSecond, double opsPerSecondError, double bytesPerOp) {
+        @Override
+        public String toString() {
+            return String.format("%-52s %,16.0f +- %,12.0f ops/s %10.1f B/op", name, opsPerSecond, opsPerSecondError,
+                    bytesPerOp);
+        }
+    }
+
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASUREMENT_ITERATIONS = 5;
+    private static final long ITERATION_NS = Long.getLong("pong.benchmarkMillis", 500) * 1_000_000;
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Where the results of the operations end up, volatile so the JIT has to compute them
+     */
+    private static volatile long sink;
+
+    private MicroBenchmark() {}
+
+    /**
+     * Runs a benchmark on the calling thread then prints its result.
+     * @param name the name printed with the result
+     * @param op the operation measured
+     * @return the result of the benchmark
+     */
+    public static Result run(String name, Operation op) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) iteration(op);
+
+        long threadId = Thread.currentThread().threadId();
+        double sum = 0, best = 0, worst = Double.MAX_VALUE;
+        long totalOps = 0;
+        long allocatedBefore = THREADS.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+            long start = System.nanoTime();
+            long ops = iteration(op);
+            double opsPerSecond = ops / ((System.nanoTime() - start) / 1E9);
+            sum += opsPerSecond;
+            best = Math.max(best, opsPerSecond);
+            worst = Math.min(worst, opsPerSecond);
+            totalOps += ops;
+        }
+        long allocated = THREADS.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        Result result = new Result(name, sum / MEASUREMENT_ITERATIONS, (best - worst) / 2,
+                (double) allocated / totalOps);
+        System.out.println(result);
+        return result;
+    }
+
+    /**
+     * Calls the operation in batches until the iteration lasted long enough. The clock is only read between batches, so
+     * it doesn't weigh on fast operations.
+     * @return the number of operations done
+     */
+    private static long iteration(Operation op) {
+        final int BATCH = 256;
+        long ops = 0;
+        long acc = 0;
+        long end = System.nanoTime() + ITERATION_NS;
+        do {
+            for (int i = 0; i < BATCH; i++) acc += op.run();
+            ops += BATCH;
+        } while (System.nanoTime() < end);
+        sink = acc;
+        return ops;
+    }
+}
@@ -2,13 +2,12 @@ package game.keyHandling;
 
 import java.awt.event.KeyListener;
 import java.awt.event.KeyEvent;
-import java.util.Arrays;
 
 import java.awt.Component;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
 
 import game.Updatable;
+import game.metrics.Histogram;
+import game.metrics.MetricsRegistry;
 
 /**
  * Returns for each action whether the keys bound to this action are pressed.
@@ -22,14 +21,53 @@ import game.Updatable;
  * @param <E> an Enum class that implements InputAction used as an action mapping
  */
 public class InputHandler<E extends Enum<E> & InputActions> implements KeyListener, Updatable {
+    /**
+     * Returned by {@link #getOldestEventTime()} when there is no event. A {@link System#nanoTime()} may be negative,
+     * so it's the one value it can't reasonably be.
+     */
+    public static final long NO_EVENT = Long.MIN_VALUE;
 
-    private final Queue<KeyAction> eventQueue = new ConcurrentLinkedQueue<>();
-    private final int INPUT_LENGTH = KeyEvent.KEY_LAST + 1;
-    private final boolean[] pressedKeysArray = new boolean[INPUT_LENGTH];
-    private final boolean[] previous = new boolean[INPUT_LENGTH];
-
-    private record KeyAction(int keyCode, boolean pressed) {
-    }
+    /**
+     * The key events received by the AWT event thread, until {@link #update()} reads them in the thread of the game
+     */
+    private final KeyEventRing events = new KeyEventRing();
+    private static final int INPUT_LENGTH = KeyEvent.KEY_LAST + 1;
+    /**
+     * The number of longs of a bitset of keys
+     */
+    private static final int WORDS = (INPUT_LENGTH + 63) / 64;
+    /**
+     * The keys pressed this tick and last tick, one bit per key code
+     */
+    private final long[] pressedKeys = new long[WORDS];
+    private final long[] previousKeys = new long[WORDS];
+    /**
+     * The actions of the mapping, found the first time an action is read, null before
+     */
+    private E[] actions;
+    /**
+     * The keys of every action, {@link #WORDS} longs per action in the order of the ordinals, compiled from the key
+     * codes of the actions
+     */
+    private long[] actionKeys;
+    /**
+     * The arrays of key codes the actions were compiled from, an action whose array was replaced (by a
+     * {@code setKeyCodes}) is compiled again
+     */
+    private int[][] compiledKeyCodes;
+    /**
+     * The actions activated this tick and last tick, one bit per ordinal, so reading an action is a bit test
+     */
+    private long activatedActions, previousActions;
+    /**
+     * The {@link System#nanoTime()} of the oldest key event read by the last update, {@link #NO_EVENT} if it read none
+     */
+    private long oldestEventTime = NO_EVENT;
+    /**
+     * How long the events take to come from the system to the event thread, and from the event thread to the update
+     * that reads them, null if they're not measured
+     */
+    private Histogram deliveryLatency, drainLatency;
 
     /**
      * The sole constructor of the class. It adds itself to the Component directly, so it's ready right away.
@@ -39,14 +77,62 @@ public class InputHandler<E extends Enum<E> & InputActions> implements KeyListen
         master.addKeyListener(this);
     }
 
+    /**
+     * Constructor for subclasses that don't listen to a component, like an input replayed from a recording. They should
+     * override the methods that read the inputs.
+     */
+    protected InputHandler() {
+    }
+
+    /**
+     * Measures how long the key events take to get to the game : from the moment the system gave them (their
+     * {@link KeyEvent#getWhen()}) to the moment the event thread gets them, in milliseconds since that's the precision
+     * of {@code getWhen()}, in the histogram {@code input.delivery}, and from then to the update that reads them in
+     * {@code input.to.drain}. Should be called before the first event.
+     * @param metrics where the histograms are created
+     */
+    public void setMetrics(MetricsRegistry metrics) {
+        deliveryLatency = metrics.histogram("input.delivery", "ms");
+        drainLatency = metrics.histogram("input.to.drain");
+    }
+
     @Override
     public void keyReleased(KeyEvent e) {
-        eventQueue.add(new KeyAction(e.getKeyCode(), false));
+        offer(e, false);
     }
 
     @Override
     public void keyPressed(KeyEvent e) {
-        eventQueue.add(new KeyAction(e.getKeyCode(), true));
+        offer(e, true);
+    }
+
+    /**
+     * Puts a key event in the ring, without allocating anything. The keys no action can use are not even put.
+     */
+    private void offer(KeyEvent e, boolean pressed) {
+        int keyCode = e.getKeyCode();
+        if (keyCode < 0 || keyCode >= INPUT_LENGTH) return;
+        // the events made by the program rather than the system may have no time
+        if (deliveryLatency != null && e.getWhen() > 0) {
+            deliveryLatency.record(System.currentTimeMillis() - e.getWhen());
+        }
+        events.offer(keyCode, pressed, System.nanoTime());
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} of the oldest key event read by the last {@link #update()}, when the event
+     * thread got it, or {@link #NO_EVENT} if the update read no event
+     */
+    public long getOldestEventTime() {
+        return oldestEventTime;
+    }
+
+    /**
+     * @return the number of key events dropped because the game didn't read them fast enough, see
+     * {@link KeyEventRing}
+     */
+    public long getOverflowCount() {
+        return events.getOverflows();
     }
 
     @Override
@@ -56,27 +142,48 @@ public class InputHandler<E extends Enum<E> & InputActions> implements KeyListen
 
 
     /**
-     * Copies the array {@code pressedKeysArray}, which contains only the keys pressed this tick into
-     * {@code previous}, which contains the keys pressed last tick and then process every key event received this tick.
-     * In other words, we keep in memory the keys pressed within the tick that just ended then keep in record the keys
-     * pressed within this tick, which allows the methods {@code actionJustPressed(Enum)} and
+     * Copies the keys pressed this tick into the keys pressed last tick and then process every key event received this
+     * tick. In other words, we keep in memory the keys pressed within the tick that just ended then keep in record the
+     * keys pressed within this tick, which allows the methods {@code actionJustPressed(Enum)} and
      * {@code actionJustReleased(Enum)} to work properly. This method is like the timekeeper of this class,
-     * allowing it to make the difference between "now" and "before".
+     * allowing it to make the difference between "now" and "before". The state of every action is then calculated
+     * once, from the keys of the actions and the keys pressed, and the actions whose key codes were replaced since the
+     * last tick are compiled again first.
      * @see #actionJustPressed(Enum)
      * @see #actionJustReleased(Enum)
      */
     @Override
     public void update() {
-        System.arraycopy(pressedKeysArray, 0, previous, 0, INPUT_LENGTH);
-        //previous = pressedKeysArray.clone();
-        //TODO : choose the better option
-
-        KeyAction action;
-        while ((action = eventQueue.poll()) != null) {
-            if (action.keyCode >= 0 && action.keyCode < INPUT_LENGTH) {
-                pressedKeysArray[action.keyCode] = action.pressed;
+        System.arraycopy(pressedKeys, 0, previousKeys, 0, WORDS);
+
+        int event;
+        boolean changed = false;
+        long now = 0;
+        oldestEventTime = NO_EVENT;
+        while ((event = events.poll()) != KeyEventRing.EMPTY) {
+            // the events come in order, so the first one is the oldest
+            if (!changed) {
+                oldestEventTime = events.polledTime();
+                now = System.nanoTime();
+            }
+            if (drainLatency != null) drainLatency.record(now - events.polledTime());
+            changed = true;
+            int keyCode = event & ~KeyEventRing.PRESSED;
+            if ((event & KeyEventRing.PRESSED) != 0) pressedKeys[keyCode >>> 6] |= 1L << keyCode;
+            else pressedKeys[keyCode >>> 6] &= ~(1L << keyCode);
+        }
+
+        if (actions == null) return;
+        boolean recompiled = false;
+        for (int i = 0; i < actions.length; i++) {
+            if (actions[i].getKeyCodes() != compiledKeyCodes[i]) {
+                compile(i);
+                recompiled = true;
             }
         }
+        // the actions of last tick are the same as before, unless their keys changed
+        previousActions = recompiled ? activatedActions(previousKeys) : activatedActions;
+        if (changed || recompiled) activatedActions = activatedActions(pressedKeys);
     }
 
     /**
@@ -97,7 +204,8 @@ public class InputHandler<E extends Enum<E> & InputActions> implements KeyListen
      * @see #InputHandler
      */
     public boolean actionActivated(E action) {
-        return Arrays.stream(action.getKeyCodes()).anyMatch(key -> pressedKeysArray[key]);
+        if (actions == null) compile(action);
+        return (activatedActions & (1L << action.ordinal())) != 0;
     }
 
     /**
@@ -113,9 +221,8 @@ public class InputHandler<E extends Enum<E> & InputActions> implements KeyListen
      * @see #InputHandler
      */
     public boolean actionJustPressed(E action) {
-        boolean pressedLastTick = Arrays.stream(action.getKeyCodes()).anyMatch(key -> previous[key]);
-        boolean pressedThisTick = Arrays.stream(action.getKeyCodes()).anyMatch(key -> pressedKeysArray[key]);
-        return !pressedLastTick && pressedThisTick;
+        if (actions == null) compile(action);
+        return (activatedActions & ~previousActions & (1L << action.ordinal())) != 0;
     }
 
     /**
@@ -129,9 +236,52 @@ public class InputHandler<E extends Enum<E> & InputActions> implements KeyListen
      * @see #InputHandler
      */
     public boolean actionJustReleased(E action) {
-        boolean pressedLastTick = Arrays.stream(action.getKeyCodes()).anyMatch(key -> previous[key]);
-        boolean pressedThisTick = Arrays.stream(action.getKeyCodes()).anyMatch(key -> pressedKeysArray[key]);
-        return pressedLastTick && !pressedThisTick;
+        if (actions == null) compile(action);
+        return (previousActions & ~activatedActions & (1L << action.ordinal())) != 0;
+    }
+
+    /**
+     * Compiles every action of the mapping of an action into a bitset of keys, the first time an action is read, and
+     * calculates their states from the keys pressed.
+     * @param any an action of the mapping
+     * @throws IllegalArgumentException if the mapping has more than 64 actions
+     */
+    private void compile(E any) {
+        E[] all = any.getDeclaringClass().getEnumConstants();
+        if (all.length > Long.SIZE) throw new IllegalArgumentException("a mapping has at most 64 actions");
+        actions = all;
+        actionKeys = new long[all.length * WORDS];
+        compiledKeyCodes = new int[all.length][];
+        for (int i = 0; i < all.length; i++) compile(i);
+        previousActions = activatedActions(previousKeys);
+        activatedActions = activatedActions(pressedKeys);
+    }
+
+    /**
+     * Compiles the key codes of the action of ordinal i into its bitset. The codes no key event can have are ignored.
+     */
+    private void compile(int i) {
+        int[] keyCodes = actions[i].getKeyCodes();
+        int from = i * WORDS;
+        for (int w = 0; w < WORDS; w++) actionKeys[from + w] = 0;
+        for (int key : keyCodes) {
+            if (key >= 0 && key < INPUT_LENGTH) actionKeys[from + (key >>> 6)] |= 1L << key;
+        }
+        compiledKeyCodes[i] = keyCodes;
+    }
+
+    /**
+     * @param keys either {@link #pressedKeys} or {@link #previousKeys}
+     * @return the actions that have at least one of their keys pressed, one bit per ordinal
+     */
+    private long activatedActions(long[] keys) {
+        long activated = 0;
+        for (int i = 0, from = 0; i < actions.length; i++, from += WORDS) {
+            long any = 0;
+            for (int w = 0; w < WORDS; w++) any |= actionKeys[from + w] & keys[w];
+            if (any != 0) activated |= 1L << i;
+        }
+        return activated;
     }
 
 }
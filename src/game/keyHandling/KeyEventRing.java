@@ -0,0 +1,114 @@
+package game.keyHandling;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * The key events on their way from the AWT event thread to the thread of the game, in a ring of ints created upfront.
+ * An event is 3 ints : the key code with {@link #PRESSED} set if the key was pressed, then the
+ * {@link System#nanoTime()} of the event. The ring has a single producer (the event thread) and a single consumer (the
+ * game thread), so it needs no lock nor compare-and-set : each side writes only its own index, and publishes it with a
+ * release that the other side reads with an acquire. Putting or taking an event never allocates.
+ * <p>
+ * When the ring is full, which only happens if the game doesn't read the events for seconds, the new events are
+ * dropped and counted : the events already in the ring keep their order, and a key whose release was dropped is
+ * right again at its next press or release.
+ */
+final class KeyEventRing {
+    /**
+     * The number of events the ring holds, a power of 2
+     */
+    static final int CAPACITY = 256;
+    /**
+     * The bit of a packed event set if the key was pressed, the other bits are the key code
+     */
+    static final int PRESSED = 1 << 31;
+    /**
+     * Returned by {@link #poll()} when there is no event
+     */
+    static final int EMPTY = -1;
+    private static final int EVENT_SIZE = 3;
+    private static final VarHandle HEAD, TAIL, OVERFLOWS;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            HEAD = lookup.findVarHandle(KeyEventRing.class, "head", long.class);
+            TAIL = lookup.findVarHandle(KeyEventRing.class, "tail", long.class);
+            OVERFLOWS = lookup.findVarHandle(KeyEventRing.class, "overflows", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final int[] events = new int[CAPACITY * EVENT_SIZE];
+    /**
+     * The number of events taken, written by the consumer only
+     */
+    @SuppressWarnings("unused")
+    private volatile long head;
+    /**
+     * The number of events put, written by the producer only
+     */
+    @SuppressWarnings("unused")
+    private volatile long tail;
+    /**
+     * The number of events dropped because the ring was full, written by the producer only
+     */
+    @SuppressWarnings("unused")
+    private volatile long overflows;
+    /**
+     * The time of the last event taken, only accessed by the consumer
+     */
+    private long polledTime;
+
+    /**
+     * Producer side. Puts an event in the ring, or drops it if the ring is full.
+     * @param keyCode the code of the key, from 0 to {@code Integer.MAX_VALUE - 1}
+     * @param pressed true if the key was pressed, false if it was released
+     * @param time the {@link System#nanoTime()} of the event
+     * @return false if the event was dropped
+     */
+    boolean offer(int keyCode, boolean pressed, long time) {
+        long t = tail;
+        if (t - (long) HEAD.getAcquire(this) == CAPACITY) {
+            OVERFLOWS.setRelease(this, overflows + 1);
+            return false;
+        }
+        int o = (int) (t & (CAPACITY - 1)) * EVENT_SIZE;
+        events[o] = pressed ? keyCode | PRESSED : keyCode;
+        events[o + 1] = (int) (time >>> 32);
+        events[o + 2] = (int) time;
+        TAIL.setRelease(this, t + 1);
+        return true;
+    }
+
+    /**
+     * Consumer side. Takes the oldest event, its time is then given by {@link #polledTime()}.
+     * @return the packed event, the key code with {@link #PRESSED} set if it was pressed, or {@link #EMPTY}
+     */
+    int poll() {
+        long h = head;
+        if (h == (long) TAIL.getAcquire(this)) return EMPTY;
+        int o = (int) (h & (CAPACITY - 1)) * EVENT_SIZE;
+        int packed = events[o];
+        polledTime = ((long) events[o + 1] << 32) | (events[o + 2] & 0xFFFFFFFFL);
+        HEAD.setRelease(this, h + 1);
+        return packed;
+    }
+
+    /**
+     * Consumer side.
+     * @return the {@link System#nanoTime()} of the last event taken by {@link #poll()}
+     */
+    long polledTime() {
+        return polledTime;
+    }
+
+    /**
+     * @return the number of events dropped because the ring was full, from any thread
+     */
+    long getOverflows() {
+        return (long) OVERFLOWS.getAcquire(this);
+    }
+}
@@ -0,0 +1,75 @@
+package game.menu;
+
+import game.keyHandling.GameActions;
+import game.keyHandling.InputHandler;
+import game.menu.menuComponent.SelectableMenuComponent;
+
+import java.awt.Graphics;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A menu without anything to show, used by headless matches in place of the menus with images. It holds one invisible
+ * choice per action, in the same order as the menu it stands for, so the selection behaves exactly the same with the
+ * same inputs (which is what matters when a recorded match is replayed headless).
+ * @param <E> the enum sent to the MenuMaster, as in {@link Menu}
+ */
+public final class HeadlessMenu<E extends Enum<E>> extends Menu<E> {
+
+    /**
+     * An invisible choice that only holds its action
+     */
+    private static class Choice<E extends Enum<E>> extends SelectableMenuComponent<E> {
+        private final E action;
+
+        private Choice(Menu<E> master, E action) {
+            super(master);
+            this.action = action;
+        }
+
+        @Override
+        public E click() {
+            return action;
+        }
+
+        @Override
+        public void toggleSelectionBehavior(boolean isSelected) {
+            // nothing to show
+        }
+
+        @Override
+        public void placeFromCenter(int x, int y) {
+            // nothing to place
+        }
+
+        @Override
+        public void render(Graphics g) {
+            // nothing to show
+        }
+    }
+
+    private final List<E> actions;
+
+    /**
+     * @param master the master of the menu
+     * @param input the input used to move in the menu, must not be null
+     * @param actions the actions of the choices, in the order of the menu it stands for
+     */
+    public HeadlessMenu(MenuMaster<E> master, InputHandler<GameActions> input, List<E> actions) {
+        super(master, input);
+        this.actions = actions;
+        initComponents();
+    }
+
+    @Override
+    public void initComponents() {
+        selectableMenuComponents = new LoopingList<>();
+        for (E action : actions) selectableMenuComponents.add(new Choice<>(this, action));
+        menuComponents = new ArrayList<>(selectableMenuComponents);
+    }
+
+    @Override
+    public void render(Graphics g) {
+        // nothing to show
+    }
+}
@@ -9,6 +9,7 @@ import game.Renderable;
 
 import java.awt.Graphics;
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * An abstract class used to display and manage a menu within a graphic interface.
@@ -33,6 +34,12 @@ public abstract class Menu<E extends Enum<E>> implements Renderable, Updatable {
     protected final int SELECTION_COOLDOWN_IN_TICKS = 10;
     protected int cooldown = 0;
     protected final InputHandler<GameActions> input;
+    /**
+     * The index of the selected component in {@link Menu#selectableMenuComponents}, counted from the first one
+     */
+    protected int selection = 0;
+    private static final AtomicInteger createdMenus = new AtomicInteger();
+    private final int id = createdMenus.incrementAndGet();
 
     /**
      * Sole constructor of the class. This allows methods like the overridden {@link Menu#update()} method can
@@ -76,12 +83,14 @@ public abstract class Menu<E extends Enum<E>> implements Renderable, Updatable {
             if (input.actionActivated(GameActions.MENU_MOVE_DOWN)) {
                 selectableMenuComponents.current().toggleSelectionBehavior(false);
                 selectableMenuComponents.next().toggleSelectionBehavior(true);
+                selection = (selection + 1) % selectableMenuComponents.size();
                 this.cooldown = input.actionJustPressed(GameActions.MENU_MOVE_DOWN)?
                         SELECTION_COOLDOWN_IN_TICKS * 2:SELECTION_COOLDOWN_IN_TICKS;
             } else // if we go up, the go down part is ignored thanks to the 'else'
                 if (input.actionActivated(GameActions.MENU_MOVE_UP)) {
                     selectableMenuComponents.current().toggleSelectionBehavior(false);
                     selectableMenuComponents.previous().toggleSelectionBehavior(true);
+                    selection = (selection - 1 + selectableMenuComponents.size()) % selectableMenuComponents.size();
                     this.cooldown = input.actionJustPressed(GameActions.MENU_MOVE_UP)?
                             SELECTION_COOLDOWN_IN_TICKS * 2:SELECTION_COOLDOWN_IN_TICKS;
                 }
@@ -93,6 +102,36 @@ public abstract class Menu<E extends Enum<E>> implements Renderable, Updatable {
         }
     }
 
+    /**
+     * @return the index of the selected component, counted from the first one
+     */
+    public int getSelection() {
+        return selection;
+    }
+
+    /**
+     * @return a number that tells this menu apart from every other menu created, so a menu that's only drawn (by the
+     * render thread, see {@link game.MatchSnapshot}) knows when the menu it shows was replaced by a new one
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Moves the selection to the given component, the same way {@link Menu#update()} does. Used by a menu that's only
+     * drawn, to show the selection of the menu it stands for.
+     * @param selection the index of the component to select, counted from the first one
+     */
+    public void select(int selection) {
+        if (selection == this.selection) return;
+        selectableMenuComponents.current().toggleSelectionBehavior(false);
+        while (this.selection != selection) {
+            selectableMenuComponents.next();
+            this.selection = (this.selection + 1) % selectableMenuComponents.size();
+        }
+        selectableMenuComponents.current().toggleSelectionBehavior(true);
+    }
+
     /**
      * Default method for rendering a menu. This method asserts that every {@code MenuComponent} object that must be
      * rendered is present in {@link Menu#menuComponents}.
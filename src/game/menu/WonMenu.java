@@ -22,6 +22,10 @@ public class WonMenu extends Menu<PauseMenuOptions> {
         this.winningSide = winningSide;
     }
 
+    public int getWinningSide() {
+        return winningSide;
+    }
+
     @Override
     public void initComponents() {
         Font font = new Font("Arial", Font.BOLD, 24);
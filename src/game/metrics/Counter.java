@@ -0,0 +1,32 @@
+package game.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A counter that only goes up, created by a {@link MetricsRegistry}. Incrementing it doesn't allocate anything and can
+ * be done from any thread.
+ */
+public class Counter {
+    private final String name;
+    private final AtomicLong count = new AtomicLong();
+
+    Counter(String name) {
+        this.name = name;
+    }
+
+    public void increment() {
+        count.incrementAndGet();
+    }
+
+    public void add(long n) {
+        count.addAndGet(n);
+    }
+
+    public long get() {
+        return count.get();
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,109 @@
+package game.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of positive values (usually durations in nanoseconds) with fixed buckets, created by a
+ * {@link MetricsRegistry}. The buckets are log-linear : the values under 32 have their own bucket, then every power of
+ * 2 is split in 16 buckets, so a value is known with a precision of about 6% whatever its magnitude. Recording a value
+ * only increments a bucket, so it doesn't allocate anything and can be done from any thread.
+ * The percentiles are computed on demand from the buckets, see {@link #percentile(double)}.
+ */
+public class Histogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /**
+     * the values under this limit have their own bucket
+     */
+    private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+    private static final int BUCKETS = LINEAR_LIMIT + (63 - 5) * SUB_BUCKETS;
+
+    private final String name;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    Histogram(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records a value, negative values are recorded as 0.
+     * @param value the value to record, usually a duration in nanoseconds
+     */
+    public void record(long value) {
+        if (value < 0) value = 0;
+        buckets.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long m;
+        while (value > (m = max.get()) && !max.compareAndSet(m, value)) Thread.onSpinWait();
+    }
+
+    private static int bucketOf(long value) {
+        if (value < LINEAR_LIMIT) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value); // >= 5
+        int mantissa = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_LIMIT + (exponent - 5) * SUB_BUCKETS + mantissa;
+    }
+
+    /**
+     * @param bucket the index of a bucket
+     * @return the value in the middle of the bucket
+     */
+    private static long valueOf(int bucket) {
+        if (bucket < LINEAR_LIMIT) return bucket;
+        int exponent = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + 5;
+        int mantissa = (bucket - LINEAR_LIMIT) % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (SUB_BUCKETS + mantissa) * width + width / 2;
+    }
+
+    /**
+     * Estimates a percentile from the buckets. The result is the middle of the bucket the percentile falls into, except
+     * for the 100th percentile which is the exact maximum.
+     * @param percentile between 0 and 100
+     * @return the estimated value, or 0 if nothing was recorded
+     */
+    public long percentile(double percentile) {
+        long total = count.get();
+        if (total == 0) return 0;
+        if (percentile >= 100) return max.get();
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) return Math.min(valueOf(i), max.get());
+        }
+        return max.get();
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long total = count.get();
+        return (total == 0) ? 0 : (double) sum.get() / total;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Forgets every value recorded so far. Values recorded at the same time by other threads may be partially lost.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) buckets.set(i, 0);
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+}
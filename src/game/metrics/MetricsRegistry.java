@@ -0,0 +1,88 @@
+package game.metrics;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Holds the counters and histograms of the game, by name. They should be created once, before the main loop, and kept
+ * in fields : getting a metric by its name is a map lookup, while recording a value allocates nothing.
+ * <pre>{@code
+ * Histogram tickDuration = metrics.histogram("tick.duration");
+ * // in the main loop
+ * long start = System.nanoTime();
+ * update();
+ * tickDuration.record(System.nanoTime() - start);}</pre>
+ * The values can be read at any moment with {@link #report()} (p50, p99 and max of every histogram) or written to a
+ * file with {@link #dump(Path)}.
+ */
+public class MetricsRegistry {
+    private final Map<String, Counter> counters = new ConcurrentSkipListMap<>();
+    private final Map<String, Histogram> histograms = new ConcurrentSkipListMap<>();
+    private final Map<String, String> units = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the counter with this name, creates it if needed.
+     * @param name the name of the counter, like "ticks"
+     * @return the counter, always the same object for the same name
+     */
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, Counter::new);
+    }
+
+    /**
+     * Gets the histogram of durations in nanoseconds with this name, creates it if needed. The report shows its values
+     * in milliseconds.
+     * @param name the name of the histogram, like "tick.duration"
+     * @return the histogram, always the same object for the same name
+     */
+    public Histogram histogram(String name) {
+        return histogram(name, "ns");
+    }
+
+    /**
+     * Gets the histogram with this name, creates it if needed.
+     * @param name the name of the histogram
+     * @param unit the unit of the values recorded, "ns" values are reported in milliseconds and the others as is
+     * @return the histogram, always the same object for the same name
+     */
+    public Histogram histogram(String name, String unit) {
+        units.putIfAbsent(name, unit);
+        return histograms.computeIfAbsent(name, Histogram::new);
+    }
+
+    /**
+     * @return every counter and the count, mean, p50, p99 and max of every histogram, one metric per line
+     */
+    public String report() {
+        StringWriter sw = new StringWriter();
+        PrintWriter out = new PrintWriter(sw);
+        for (Counter c : counters.values()) out.printf("%-28s %d%n", c.getName(), c.get());
+        for (Histogram h : histograms.values()) {
+            if ("ns".equals(units.get(h.getName()))) {
+                out.printf("%-28s count %d, mean %.3f ms, p50 %.3f ms, p99 %.3f ms, max %.3f ms%n", h.getName(),
+                        h.getCount(), h.getMean() / 1E6, h.percentile(50) / 1E6, h.percentile(99) / 1E6,
+                        h.getMax() / 1E6);
+            } else {
+                out.printf("%-28s count %d, mean %.2f, p50 %d, p99 %d, max %d %s%n", h.getName(), h.getCount(),
+                        h.getMean(), h.percentile(50), h.percentile(99), h.getMax(), units.get(h.getName()));
+            }
+        }
+        out.flush();
+        return sw.toString();
+    }
+
+    /**
+     * Writes {@link #report()} into a file, replacing it if it exists.
+     * @param file where to write the report
+     * @throws IOException if the file can't be written
+     */
+    public void dump(Path file) throws IOException {
+        Files.writeString(file, report());
+    }
+}
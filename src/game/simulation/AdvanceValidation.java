@@ -0,0 +1,95 @@
+package game.simulation;
+
+import game.ComputerPlayer.Difficulty;
+import game.MatchManager;
+import game.MatchState;
+
+/**
+ * Checks that {@link MatchManager#advance(long)} plays exactly the same matches as {@link MatchManager#update()} : each
+ * match is played twice with the same seed, once tick by tick and once by skipping, and the whole states of both
+ * matches are compared after every skip. It also reports how many ticks a skip plays on average, separately for the
+ * matches of LEARNED (it decides every tick, so only its countdowns are skipped), and how much faster skipping is.
+ * <p>
+ * Usage : {@code java game.simulation.AdvanceValidation [matchesPerPairing] [firstSeed]}, the exit code is 1 if a
+ * match differs.
+ */
+public class AdvanceValidation {
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        int matches = (args.length > 0) ? Integer.parseInt(args[0]) : 5;
+        long firstSeed = (args.length > 1) ? Long.parseLong(args[1]) : 1;
+        long seed = firstSeed;
+
+        MatchManager ticked = MatchManager.headless();
+        MatchManager skipped = MatchManager.headless();
+        // -Dpong.fixedPoint=true validates the fixed-point physics instead
+        ticked.setFixedPoint(Boolean.getBoolean("pong.fixedPoint"));
+        skipped.setFixedPoint(Boolean.getBoolean("pong.fixedPoint"));
+        MatchState tickedState = new MatchState();
+        MatchState skippedState = new MatchState();
+        long totalTicks = 0, totalAdvances = 0;
+        long learnedTicks = 0, learnedAdvances = 0;
+        int failures = 0;
+
+        for (Difficulty left : Difficulty.values()) {
+            for (Difficulty right : Difficulty.values()) {
+                for (int i = 0; i < matches; i++, seed++) {
+                    ticked.startGame(left, right, seed);
+                    skipped.startGame(left, right, seed);
+                    long ticks = 0, advances = 0;
+                    while (!skipped.isOver() && ticks < HeadlessRunner.MAX_TICKS_PER_MATCH) {
+                        long n = skipped.advance(HeadlessRunner.MAX_TICKS_PER_MATCH - ticks);
+                        for (long k = 0; k < n; k++) ticked.update();
+                        ticks += n;
+                        advances++;
+                        ticked.saveState(tickedState);
+                        skipped.saveState(skippedState);
+                        if (!tickedState.sameAs(skippedState)) {
+                            System.out.printf("MISMATCH %s vs %s, seed %d, at tick %d after skipping %d ticks%n",
+                                    left, right, seed, ticks, n);
+                            failures++;
+                            break;
+                        }
+                    }
+                    if (ticked.isOver() != skipped.isOver()) {
+                        System.out.printf("MISMATCH %s vs %s, seed %d : only one match is over%n", left, right, seed);
+                        failures++;
+                    }
+                    totalTicks += ticks;
+                    totalAdvances += advances;
+                    if (left == Difficulty.LEARNED || right == Difficulty.LEARNED) {
+                        learnedTicks += ticks;
+                        learnedAdvances += advances;
+                    }
+                }
+            }
+        }
+        System.out.printf("%d ticks compared in %d skips, %d mismatches%n", totalTicks, totalAdvances, failures);
+        System.out.printf("%.1f ticks per skip without LEARNED, %.1f with it%n",
+                (double) (totalTicks - learnedTicks) / (totalAdvances - learnedAdvances),
+                (double) learnedTicks / learnedAdvances);
+
+        // every seed played above again, as SMART vs SMART, timed
+        long start = System.nanoTime();
+        long ticks = 0;
+        for (long s = firstSeed; s < seed; s++) {
+            ticked.startGame(Difficulty.SMART, Difficulty.SMART, s);
+            while (!ticked.isOver()) {
+                ticked.update();
+                ticks++;
+            }
+        }
+        double tickSeconds = (System.nanoTime() - start) / 1E9;
+        start = System.nanoTime();
+        for (long s = firstSeed; s < seed; s++) {
+            skipped.startGame(Difficulty.SMART, Difficulty.SMART, s);
+            while (!skipped.isOver()) skipped.advance(Long.MAX_VALUE);
+        }
+        double skipSeconds = (System.nanoTime() - start) / 1E9;
+        System.out.printf("SMART vs SMART, %d ticks : %.3f s tick by tick, %.3f s skipping (%.1f times faster)%n",
+                ticks, tickSeconds, skipSeconds, tickSeconds / skipSeconds);
+
+        if (failures > 0) System.exit(1);
+    }
+}
@@ -0,0 +1,65 @@
+package game.simulation;
+
+import game.ComputerPlayer.Difficulty;
+import game.MatchManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Plays bot-vs-bot matches without any display, as fast as the CPU allows, and reports how many ticks per second the
+ * simulation runs at. Nothing from AWT is created, so it runs on servers with {@code -Djava.awt.headless=true}.
+ * <p>
+ * Usage : {@code java game.simulation.HeadlessRunner [matches] [leftDifficulty] [rightDifficulty]}, by default 10
+ * matches of SMART against SMART. The fixed-point physics is used with {@code -Dpong.fixedPoint=true}.
+ */
+public class HeadlessRunner {
+    /**
+     * A match that lasts longer than that (about 28 hours of game time) is regarded as stuck and stopped
+     */
+    public static final long MAX_TICKS_PER_MATCH = 10_000_000;
+
+    /**
+     * Plays a headless match from its start until it's over, skipping what can be skipped with
+     * {@link MatchManager#advance(long)}, which gives the same match as ticking it.
+     * @param match a headless MatchManager, see {@link MatchManager#headless()}
+     * @param left the difficulty of the left bot
+     * @param right the difficulty of the right bot
+     * @return the number of ticks the match lasted
+     */
+    public static long playMatch(MatchManager match, Difficulty left, Difficulty right) {
+        return playMatch(match, left, right, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * The same as {@link #playMatch(MatchManager, Difficulty, Difficulty)} with a given seed, the same seed gives the
+     * same match.
+     */
+    public static long playMatch(MatchManager match, Difficulty left, Difficulty right, long seed) {
+        match.startGame(left, right, seed);
+        long ticks = 0;
+        while (!match.isOver() && ticks < MAX_TICKS_PER_MATCH) ticks += match.advance(MAX_TICKS_PER_MATCH - ticks);
+        return ticks;
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        int matches = (args.length > 0) ? Integer.parseInt(args[0]) : 10;
+        Difficulty left = (args.length > 1) ? Difficulty.valueOf(args[1].toUpperCase()) : Difficulty.SMART;
+        Difficulty right = (args.length > 2) ? Difficulty.valueOf(args[2].toUpperCase()) : Difficulty.SMART;
+
+        MatchManager match = MatchManager.headless();
+        match.setFixedPoint(Boolean.getBoolean("pong.fixedPoint"));
+        long totalTicks = 0;
+        int leftWins = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < matches; i++) {
+            totalTicks += playMatch(match, left, right);
+            if (match.getWinningSide() == 1) leftWins++;
+        }
+        double seconds = (System.nanoTime() - start) / 1E9;
+
+        System.out.printf("%d matches %s vs %s : %d - %d%n", matches, left, right, leftWins, matches - leftWins);
+        System.out.printf("%d ticks in %.3f s : %.0f ticks per second (%.0f times real time)%n",
+                totalTicks, seconds, totalTicks / seconds, totalTicks / seconds / 100);
+    }
+}
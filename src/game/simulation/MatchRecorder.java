@@ -0,0 +1,171 @@
+package game.simulation;
+
+import game.ComputerPlayer;
+import game.MatchManager;
+import game.Racket;
+import game.keyHandling.GameActions;
+import game.keyHandling.InputHandler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Records every match of a MatchManager into its own file, as a compact binary log that {@link MatchReplay} can play
+ * again tick for tick. Since the randomness of the bots only depends on the seed of the match, it's enough to record
+ * the seed and, for each tick, which {@link GameActions} are activated. The format is :
+ * <pre>
+ * header : int MAGIC, short VERSION, byte gameMode, byte leftDifficulty, byte rightDifficulty (-1 for a player),
+ *          byte physics (0 for float, 1 for fixed point), long matchSeed, short actions activated the tick before the
+ *          first one
+ * ticks  : runs of (short actions, int number of ticks), the actions being a bitset of the GameActions ordinals,
+ *          ended by the short -1
+ * end    : long ticks, int scorePlayer1, int scorePlayer2, long stateHash
+ * </pre>
+ * The matches of LEARNED are replayed the same only with the policy they were played with, see {@link game.QPolicy}.
+ * A file without its end (if the game was closed in the middle of a match) can't be verified, but can still be
+ * replayed.
+ * The file is written through a {@link FileChannel} and a direct buffer, so recording a tick usually costs a
+ * comparison.
+ */
+public class MatchRecorder implements MatchManager.MatchObserver {
+    static final int MAGIC = 0x504F4E47; // "PONG"
+    static final short VERSION = 1;
+    static final short END_OF_TICKS = -1;
+    static final String EXTENSION = ".pongrec";
+    private static final GameActions[] ACTIONS = GameActions.values();
+    private static final DateTimeFormatter FILE_NAME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Path directory;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(8192);
+    private FileChannel channel;
+    private int matchCount = 0;
+    private long ticks;
+    /**
+     * The run being recorded, it's only written once the actions change
+     */
+    private int runActions;
+    private int runLength;
+
+    /**
+     * @param directory where the recordings are written, one file per match
+     */
+    public MatchRecorder(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @param input the input read by a match
+     * @return the bitset of the activated actions, the bit i being the action of ordinal i
+     */
+    public static int actionMask(InputHandler<GameActions> input) {
+        int mask = 0;
+        for (int i = 0; i < ACTIONS.length; i++) {
+            if (input.actionActivated(ACTIONS[i])) mask |= 1 << i;
+        }
+        return mask;
+    }
+
+    /**
+     * @param player a racket
+     * @return the ordinal of its difficulty, or -1 if it's played by a human
+     */
+    static byte difficultyOf(Racket player) {
+        if (player instanceof ComputerPlayer) return (byte) ((ComputerPlayer) player).getDifficulty().ordinal();
+        return -1;
+    }
+
+    @Override
+    public void matchStarted(MatchManager match) {
+        String name = "match-" + LocalDateTime.now().format(FILE_NAME) + "-" + (matchCount++) + EXTENSION;
+        try {
+            channel = FileChannel.open(directory.resolve(name), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            e.printStackTrace();
+            channel = null;
+            return;
+        }
+        buffer.clear();
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.put((byte) match.getGameMode());
+        buffer.put(difficultyOf(match.player1));
+        buffer.put(difficultyOf(match.player2));
+        buffer.put((byte) (match.isFixedPoint() ? 1 : 0));
+        buffer.putLong(match.getMatchSeed());
+        buffer.putShort((short) ((match.getInput() == null) ? 0 : actionMask(match.getInput())));
+        ticks = 0;
+        runActions = -1;
+        runLength = 0;
+    }
+
+    @Override
+    public void beforeTick(MatchManager match) {
+        if (channel == null) return;
+        int actions = (match.getInput() == null) ? 0 : actionMask(match.getInput());
+        ticks++;
+        if (actions == runActions) {
+            runLength++;
+            return;
+        }
+        writeRun();
+        runActions = actions;
+        runLength = 1;
+    }
+
+    @Override
+    public void matchEnded(MatchManager match) {
+        if (channel == null) return;
+        writeRun();
+        ensureRemaining(2 + 8 + 4 + 4 + 8);
+        buffer.putShort(END_OF_TICKS);
+        buffer.putLong(ticks);
+        buffer.putInt(match.getScorePlayer1());
+        buffer.putInt(match.getScorePlayer2());
+        buffer.putLong(match.stateHash());
+        close();
+    }
+
+    /**
+     * Writes what's buffered and closes the current file, without writing the end of the match. Should be called when
+     * the game is closed in the middle of a match.
+     */
+    public void close() {
+        if (channel == null) return;
+        try {
+            flush();
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        channel = null;
+    }
+
+    private void writeRun() {
+        if (runLength == 0) return;
+        ensureRemaining(2 + 4);
+        buffer.putShort((short) runActions);
+        buffer.putInt(runLength);
+    }
+
+    private void ensureRemaining(int bytes) {
+        if (buffer.remaining() >= bytes) return;
+        try {
+            flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+            buffer.clear();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+}
@@ -0,0 +1,206 @@
+package game.simulation;
+
+import game.ComputerPlayer.Difficulty;
+import game.MatchManager;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Plays a match recorded by {@link MatchRecorder} again, headless and as fast as possible, then checks it ends exactly
+ * like the recorded one (same number of ticks, same scores and same state hash). It's meant for regression testing : a
+ * change in the engine that changes how a match goes on makes the replays of older recordings fail.
+ * <p>
+ * Usage : {@code java game.simulation.MatchReplay <recording or directory>...}, the exit code is 1 if a replay doesn't
+ * match its recording.
+ */
+public class MatchReplay implements Closeable {
+
+    /**
+     * @param ticks how many ticks were replayed
+     * @param nanos how long the replay took
+     * @param verified false if the recording has no end to compare with
+     * @param matches true if the replay ended exactly like the recording, always false if not verified
+     * @param details what was compared
+     */
+    public record Result(long ticks, long nanos, boolean verified, boolean matches, String details) {
+        /**
+         * @return how many times faster than real time (100 ticks per second) the replay was
+         */
+        public double speedUp() {
+            return ticks / (nanos / 1E9) / 100;
+        }
+    }
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(8192);
+    private final int gameMode;
+    private final byte leftDifficulty, rightDifficulty;
+    private final boolean fixedPoint;
+    private final long matchSeed;
+    private final int initialActions;
+    /**
+     * Remaining ticks of the current run, and its actions
+     */
+    private int runRemaining = 0;
+    private int runActions;
+    private boolean endReached = false;
+
+    private MatchReplay(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        buffer.limit(0);
+        require(4 + 2);
+        if (buffer.getInt() != MatchRecorder.MAGIC) throw new IOException(file + " is not a recording");
+        short version = buffer.getShort();
+        if (version != MatchRecorder.VERSION) throw new IOException("unsupported recording version " + version);
+        require(4 + 8 + 2);
+        gameMode = buffer.get();
+        leftDifficulty = buffer.get();
+        rightDifficulty = buffer.get();
+        fixedPoint = buffer.get() != 0;
+        matchSeed = buffer.getLong();
+        initialActions = buffer.getShort() & 0xFFFF;
+    }
+
+    public static MatchReplay open(Path file) throws IOException {
+        return new MatchReplay(file);
+    }
+
+    /**
+     * Makes sure the buffer holds at least {@code bytes} bytes, reading the file if needed.
+     * @throws EOFException if the file ends before
+     */
+    private void require(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) return;
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                buffer.flip();
+                throw new EOFException();
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Called by {@link ReplayInput} at the start of each tick.
+     * @return the actions of the next tick, or -1 if the recording is over
+     */
+    int nextActions() {
+        if (runRemaining > 0) {
+            runRemaining--;
+            return runActions;
+        }
+        if (endReached) return -1;
+        try {
+            require(2);
+            short actions = buffer.getShort();
+            if (actions == MatchRecorder.END_OF_TICKS) {
+                endReached = true;
+                return -1;
+            }
+            require(4);
+            runActions = actions & 0xFFFF;
+            runRemaining = buffer.getInt() - 1;
+            return runActions;
+        } catch (IOException e) {
+            // a recording without its end, the game was closed in the middle of the match
+            return -1;
+        }
+    }
+
+    /**
+     * Replays the whole match then compares its end with the recorded one.
+     * @return the result of the replay
+     * @throws IOException if the recording can't be read
+     */
+    public Result play() throws IOException {
+        ReplayInput input = new ReplayInput(this, initialActions);
+        MatchManager match = MatchManager.headless(input);
+        boolean[] ended = {false};
+        // the hash is taken when the match ends, like the recorder does
+        long[] endHash = {0};
+        match.setObserver(new MatchManager.MatchObserver() {
+            @Override
+            public void matchStarted(MatchManager m) {}
+
+            @Override
+            public void beforeTick(MatchManager m) {}
+
+            @Override
+            public void matchEnded(MatchManager m) {
+                ended[0] = true;
+                endHash[0] = m.stateHash();
+            }
+        });
+
+        match.setFixedPoint(fixedPoint);
+        if (gameMode == 0) {
+            match.startGame(Difficulty.values()[leftDifficulty], Difficulty.values()[rightDifficulty], matchSeed);
+        } else match.startGame(gameMode, matchSeed);
+
+        long ticks = 0;
+        long start = System.nanoTime();
+        while (!ended[0]) {
+            input.update();
+            if (input.isExhausted()) break;
+            match.update();
+            ticks++;
+        }
+        long nanos = System.nanoTime() - start;
+        // if the replay ended too early, the rest of the recording is skipped to reach its end
+        while (nextActions() >= 0) ;
+
+        if (!endReached) return new Result(ticks, nanos, false, false, "the recording has no end");
+        require(8 + 4 + 4 + 8);
+        long recordedTicks = buffer.getLong();
+        int score1 = buffer.getInt();
+        int score2 = buffer.getInt();
+        long hash = buffer.getLong();
+        boolean matches = ended[0] && recordedTicks == ticks && score1 == match.getScorePlayer1()
+                && score2 == match.getScorePlayer2() && hash == endHash[0];
+        String details = String.format("recorded %d ticks %d-%d hash %016x, replayed %d ticks %d-%d hash %016x",
+                recordedTicks, score1, score2, hash, ticks, match.getScorePlayer1(), match.getScorePlayer2(),
+                endHash[0]);
+        return new Result(ticks, nanos, true, matches, details);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        List<Path> files = new ArrayList<>();
+        for (String arg : args) {
+            Path path = Path.of(arg);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> s = Files.list(path)) {
+                    s.filter(p -> p.toString().endsWith(MatchRecorder.EXTENSION)).sorted().forEach(files::add);
+                }
+            } else files.add(path);
+        }
+
+        boolean allMatch = true;
+        for (Path file : files) {
+            try (MatchReplay replay = open(file)) {
+                Result r = replay.play();
+                String status = !r.verified() ? "UNVERIFIED" : r.matches() ? "OK" : "MISMATCH";
+                System.out.printf("%-10s %s : %d ticks, %.0f times real time (%s)%n",
+                        status, file.getFileName(), r.ticks(), r.speedUp(), r.details());
+                if (r.verified() && !r.matches()) allMatch = false;
+            }
+        }
+        if (!allMatch) System.exit(1);
+    }
+}
@@ -0,0 +1,305 @@
+package game.simulation;
+
+import game.Ball;
+import game.Game;
+import game.MatchManager;
+import game.QPolicy;
+import game.Racket;
+import game.SplitMix64;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Learns the policy of the LEARNED computer by self-play, with tabular Q-learning over the states of {@link QPolicy},
+ * and writes it to a policy file.
+ * <p>
+ * An episode is a point : the ball is served from the middle of the field, with a random height, speed and angle (or
+ * like in a match, once in 4 episodes), the rackets start at random heights, and both of them play with the same
+ * table, each one seeing the match from its side, until the ball reaches a goal. A racket gets 1 when it hits the
+ * ball and -1 when it lets it in. It chooses a move when its state changes and keeps it until the next change, with
+ * the discount of the ticks spent in the state. The moves of an episode are learned from once it's over, from the
+ * last to the first, so what happened at the end of the point goes back to the first moves in a single episode
+ * rather than one state per episode.
+ * <p>
+ * The training runs in rounds on a {@link ForkJoinPool} : in each round, {@link #SHARDS} learners start from the
+ * table, play their episodes on their own headless {@link MatchManager}, then the table takes, for every state and
+ * move, the average of the learners weighted by how many times they updated it. The seeds of the episodes derive
+ * from a single seed with {@link SplitMix64#nth(long, long)}, so the policy only depends on the seed and the number
+ * of rounds, whatever the number of threads.
+ * <p>
+ * Usage : {@code java game.simulation.PolicyTrainer [rounds] [parallelism] [seed] [file]}, by default 48 rounds on
+ * every core, with the seed 0, written to {@code resources/game/policy.qtable}, which is how the policy of the game was
+ * made. A new policy changes the matches of LEARNED, and so the hash expected by {@code game.test.FixedPointTest}.
+ */
+public class PolicyTrainer {
+    /**
+     * The number of learners of a round, the same whatever the number of threads so the results don't depend on it
+     */
+    static final int SHARDS = 16;
+    static final int EPISODES_PER_SHARD = 512;
+    /**
+     * An episode longer than that is stopped without a reward, the ball is most likely stuck between 2 rackets that
+     * don't move
+     */
+    private static final int MAX_EPISODE_TICKS = 20_000;
+    private static final float LEARNING_RATE = 0.1f;
+    /**
+     * The discount per tick : a point is worth half as much about 140 ticks later
+     */
+    private static final float DISCOUNT = 0.995f;
+    /**
+     * The exploration, the probability of a random move, decreases linearly from the first to the last round
+     */
+    private static final double FIRST_EXPLORATION = 0.2, LAST_EXPLORATION = 0.02;
+    /**
+     * The scroll limits of the rackets, the y where they start are taken between them
+     */
+    private static final int TOP = Ball.RADIUS * 3, BOTTOM = Game.HEIGHT - Ball.RADIUS * 3 - Racket.HEIGHT;
+
+    /**
+     * A learner, with its own copy of the table and its own headless match. Not thread-safe, each task has its own.
+     */
+    private static class Shard {
+        final float[] values = new float[QPolicy.STATES * QPolicy.ACTIONS];
+        final int[] updates = new int[QPolicy.STATES * QPolicy.ACTIONS];
+        final MatchManager sandbox = MatchManager.headless();
+        final Racket left = new Racket(1), right = new Racket(-1);
+        final Side[] sides = {new Side(left), new Side(right)};
+        long ticks;
+
+        Shard() {
+            sandbox.player1 = left;
+            sandbox.player2 = right;
+            left.x = Ball.RADIUS * 3;
+            right.x = Game.WIDTH - Ball.RADIUS * 3 - Racket.WIDTH;
+        }
+    }
+
+    /**
+     * What a racket did during an episode
+     */
+    private static class Side {
+        final Racket racket;
+        /**
+         * The move being played, in its state, and what it got since it was chosen
+         */
+        int state, action;
+        float reward, discount;
+        /**
+         * The moves played before, learned from at the end of the episode
+         */
+        final int[] states = new int[MAX_EPISODE_TICKS], actions = new int[MAX_EPISODE_TICKS];
+        final float[] rewards = new float[MAX_EPISODE_TICKS], discounts = new float[MAX_EPISODE_TICKS];
+        int moves;
+
+        Side(Racket racket) {
+            this.racket = racket;
+        }
+
+        void play(int state, int action) {
+            this.state = state;
+            this.action = action;
+            reward = 0;
+            discount = 1;
+        }
+
+        void record() {
+            states[moves] = state;
+            actions[moves] = action;
+            rewards[moves] = reward;
+            discounts[moves] = discount;
+            moves++;
+        }
+    }
+
+    /**
+     * Plays the rounds and returns the table of the values of the moves.
+     * @param pool the pool the learners run on
+     * @param rounds the number of rounds
+     * @param seed the seed every episode derives from
+     * @return the value of the move a of the state s at the index s * {@link QPolicy#ACTIONS} + a
+     */
+    public static float[] train(ForkJoinPool pool, int rounds, long seed) {
+        return train(pool, rounds, seed, new long[1]);
+    }
+
+    /**
+     * The same as {@link #train(ForkJoinPool, int, long)}, counting the ticks played.
+     * @param ticks where the number of ticks played is written, at the index 0
+     */
+    static float[] train(ForkJoinPool pool, int rounds, long seed, long[] ticks) {
+        float[] values = new float[QPolicy.STATES * QPolicy.ACTIONS];
+        Shard[] shards = new Shard[SHARDS];
+        for (int i = 0; i < SHARDS; i++) shards[i] = new Shard();
+        for (int round = 0; round < rounds; round++) {
+            double exploration = (rounds == 1) ? LAST_EXPLORATION
+                    : FIRST_EXPLORATION + (LAST_EXPLORATION - FIRST_EXPLORATION) * round / (rounds - 1);
+            long roundSeed = SplitMix64.nth(seed, round);
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(SHARDS);
+            for (int i = 0; i < SHARDS; i++) {
+                Shard shard = shards[i];
+                long shardSeed = SplitMix64.nth(roundSeed, i);
+                tasks.add(pool.submit(() -> playEpisodes(shard, values, exploration, shardSeed)));
+            }
+            for (ForkJoinTask<?> task : tasks) task.join();
+            merge(values, shards);
+        }
+        for (Shard shard : shards) ticks[0] += shard.ticks;
+        return values;
+    }
+
+    /**
+     * Plays the episodes of a learner of a round, from a copy of the table.
+     */
+    private static void playEpisodes(Shard shard, float[] values, double exploration, long seed) {
+        System.arraycopy(values, 0, shard.values, 0, values.length);
+        Arrays.fill(shard.updates, 0);
+        SplitMix64 random = new SplitMix64(seed);
+        for (int i = 0; i < EPISODES_PER_SHARD; i++) playEpisode(shard, random, exploration);
+    }
+
+    private static void playEpisode(Shard shard, SplitMix64 random, double exploration) {
+        Ball ball = shard.sandbox.ball;
+        Racket left = shard.left, right = shard.right;
+        left.y = TOP + random.nextInt(BOTTOM - TOP + 1);
+        right.y = TOP + random.nextInt(BOTTOM - TOP + 1);
+        if (random.nextInt(4) == 0) {
+            // the serve of a match, after a point
+            left.y = right.y = (Game.HEIGHT - Racket.HEIGHT) / 2f;
+            ball.setPosition(Game.WIDTH / 2f, Game.HEIGHT / 2f);
+            ball.setSpeed(random.nextBoolean() ? 2 : -2, 0);
+        } else {
+            double angle = Math.toRadians(random.nextDouble(-45, 45));
+            double norm = random.nextDouble(2, 8) * (random.nextBoolean() ? 1 : -1);
+            ball.setPosition(Game.WIDTH / 2f, Game.HEIGHT / 4f + random.nextInt(Game.HEIGHT / 2));
+            ball.setSpeed((float) (norm * StrictMath.cos(angle)), (float) (norm * StrictMath.sin(angle)));
+        }
+        for (Side side : shard.sides) {
+            int state = QPolicy.state(ball, side.racket);
+            side.moves = 0;
+            side.play(state, choose(shard.values, state, random, exploration));
+        }
+
+        for (int t = 0; t < MAX_EPISODE_TICKS; t++) {
+            for (Side side : shard.sides) {
+                int state = QPolicy.state(ball, side.racket);
+                if (state != side.state) {
+                    side.record();
+                    side.play(state, choose(shard.values, state, random, exploration));
+                }
+                if (side.action == QPolicy.UP) side.racket.y -= Racket.SPEED;
+                else if (side.action == QPolicy.DOWN) side.racket.y += Racket.SPEED;
+                side.racket.update();
+            }
+            int hits = ball.getHitCount();
+            ball.update();
+            shard.ticks++;
+            if (ball.getHitCount() != hits) {
+                // the ball goes away from the racket that hit it
+                Side hitter = shard.sides[(ball.speed.getX() > 0) ? 0 : 1];
+                hitter.reward += hitter.discount;
+            }
+            for (Side side : shard.sides) side.discount *= DISCOUNT;
+            int scorer = ball.touchDown();
+            if (scorer != 0) {
+                Side loser = shard.sides[(scorer == 1) ? 1 : 0];
+                loser.reward -= loser.discount;
+                for (Side side : shard.sides) {
+                    side.record();
+                    learn(shard, side, 0);
+                }
+                return;
+            }
+        }
+        // stopped : the move being played is not learned from, the value of its state ends the others
+        for (Side side : shard.sides) learn(shard, side, best(shard.values, side.state));
+    }
+
+    /**
+     * Moves the value of each move of the episode toward what it got plus the discounted value of the state it led
+     * to, from the last move to the first.
+     * @param end the value of the state after the last move, 0 if the point is over
+     */
+    private static void learn(Shard shard, Side side, float end) {
+        float next = end;
+        for (int m = side.moves - 1; m >= 0; m--) {
+            int i = side.states[m] * QPolicy.ACTIONS + side.actions[m];
+            shard.values[i] += LEARNING_RATE * (side.rewards[m] + side.discounts[m] * next - shard.values[i]);
+            shard.updates[i]++;
+            next = best(shard.values, side.states[m]);
+        }
+    }
+
+    private static int choose(float[] values, int state, SplitMix64 random, double exploration) {
+        if (random.nextDouble() < exploration) return random.nextInt(QPolicy.ACTIONS);
+        return greedy(values, state);
+    }
+
+    /**
+     * @return the move with the best value, staying if there's a tie
+     */
+    static int greedy(float[] values, int state) {
+        int from = state * QPolicy.ACTIONS;
+        int best = QPolicy.STAY;
+        for (int a = 1; a < QPolicy.ACTIONS; a++) {
+            if (values[from + a] > values[from + best]) best = a;
+        }
+        return best;
+    }
+
+    private static float best(float[] values, int state) {
+        return values[state * QPolicy.ACTIONS + greedy(values, state)];
+    }
+
+    /**
+     * Averages the tables of the learners into the table, weighted by how many times each one updated each value, in
+     * the order of the learners so the result is always the same.
+     */
+    private static void merge(float[] values, Shard[] shards) {
+        for (int i = 0; i < values.length; i++) {
+            float sum = 0;
+            int updates = 0;
+            for (Shard shard : shards) {
+                sum += shard.values[i] * shard.updates[i];
+                updates += shard.updates[i];
+            }
+            if (updates > 0) values[i] = sum / updates;
+        }
+    }
+
+    /**
+     * @return the best move of every state
+     */
+    public static byte[] policy(float[] values) {
+        byte[] actions = new byte[QPolicy.STATES];
+        for (int s = 0; s < QPolicy.STATES; s++) actions[s] = (byte) greedy(values, s);
+        return actions;
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        int rounds = (args.length > 0) ? Integer.parseInt(args[0]) : 48;
+        int parallelism = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long seed = (args.length > 2) ? Long.parseLong(args[2]) : 0;
+        Path file = Path.of((args.length > 3) ? args[3] : "resources/game/" + QPolicy.FILE_NAME);
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        long start = System.nanoTime();
+        long[] ticks = new long[1];
+        float[] values = train(pool, rounds, seed, ticks);
+        double seconds = (System.nanoTime() - start) / 1E9;
+        pool.shutdown();
+        QPolicy.write(file, policy(values));
+
+        long episodes = (long) rounds * SHARDS * EPISODES_PER_SHARD;
+        System.out.printf("%d episodes and %d ticks in %.3f s on %d threads : %.0f episodes per second, %.0f ticks per "
+                + "second%n", episodes, ticks[0], seconds, parallelism, episodes / seconds, ticks[0] / seconds);
+        System.out.println("policy of seed " + seed + " written to " + file.toAbsolutePath());
+    }
+}
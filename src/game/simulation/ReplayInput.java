@@ -0,0 +1,60 @@
+package game.simulation;
+
+import game.keyHandling.GameActions;
+import game.keyHandling.InputHandler;
+
+/**
+ * An input that doesn't listen to any keyboard but plays the actions of a recording again, one bitset of activated
+ * {@link GameActions} per tick. Just like the InputHandler it replaces, {@link #update()} should be called once at the
+ * start of every tick.
+ */
+public class ReplayInput extends InputHandler<GameActions> {
+    private final MatchReplay replay;
+    private int current;
+    private int previous;
+    private boolean exhausted = false;
+
+    /**
+     * @param replay where the actions come from
+     * @param initialActions the actions activated the tick before the first replayed tick
+     */
+    ReplayInput(MatchReplay replay, int initialActions) {
+        this.replay = replay;
+        this.current = initialActions;
+    }
+
+    /**
+     * Moves to the actions of the next tick of the recording.
+     */
+    @Override
+    public void update() {
+        previous = current;
+        int next = replay.nextActions();
+        if (next < 0) exhausted = true;
+        else current = next;
+    }
+
+    /**
+     * @return true once every tick of the recording has been replayed
+     */
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    @Override
+    public boolean actionActivated(GameActions action) {
+        return (current & (1 << action.ordinal())) != 0;
+    }
+
+    @Override
+    public boolean actionJustPressed(GameActions action) {
+        int bit = 1 << action.ordinal();
+        return (previous & bit) == 0 && (current & bit) != 0;
+    }
+
+    @Override
+    public boolean actionJustReleased(GameActions action) {
+        int bit = 1 << action.ordinal();
+        return (previous & bit) != 0 && (current & bit) == 0;
+    }
+}
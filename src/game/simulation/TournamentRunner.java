@@ -0,0 +1,166 @@
+package game.simulation;
+
+import game.ComputerPlayer.Difficulty;
+import game.MatchManager;
+import game.SplitMix64;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Plays complete bot-vs-bot matches for every pairing of {@link Difficulty} (both sides, so 25 pairings) in parallel on
+ * a {@link ForkJoinPool}, then reports the win rates, the average rally length and the throughput. Every match runs on
+ * its own headless {@link MatchManager}, so matches don't share any state and the runner scales with the number of
+ * cores. The seeds of the matches all derive from a single seed with {@link SplitMix64#nth(long, long)}, so the
+ * results of a tournament only depend on its seed, whatever the number of threads and the order of the matches.
+ * <p>
+ * Usage : {@code java game.simulation.TournamentRunner [matchesPerPairing] [parallelism] [seed]}, by default 100
+ * matches per pairing on every core, with a random seed. The fixed-point physics is used with
+ * {@code -Dpong.fixedPoint=true}.
+ */
+public class TournamentRunner {
+
+    /**
+     * The statistics of a set of matches played with the same pairing. Not thread-safe, each task fills its own then
+     * they're merged.
+     */
+    public static class PairingResult {
+        public final Difficulty left;
+        public final Difficulty right;
+        public int matches;
+        public int leftWins;
+        public long ticks;
+        public long hits;
+        public long points;
+
+        public PairingResult(Difficulty left, Difficulty right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        private void merge(PairingResult other) {
+            matches += other.matches;
+            leftWins += other.leftWins;
+            ticks += other.ticks;
+            hits += other.hits;
+            points += other.points;
+        }
+
+        /**
+         * @return the share of matches won by the left bot, between 0 and 1
+         */
+        public double leftWinRate() {
+            return (matches == 0) ? 0 : (double) leftWins / matches;
+        }
+
+        /**
+         * @return the average number of racket hits per point
+         */
+        public double averageRallyLength() {
+            return (points == 0) ? 0 : (double) hits / points;
+        }
+    }
+
+    /**
+     * Plays the matches {@code [from, to)} of a pairing, splitting the range in two until it's small enough.
+     */
+    private static class MatchTask extends RecursiveTask<PairingResult> {
+        private static final long serialVersionUID = 1L;
+        private static final int MATCHES_PER_LEAF = 4;
+        private final Difficulty left, right;
+        private final int from, to;
+        /**
+         * The seed of the pairing, the seed of its i-th match is the i-th number of SplitMix64 seeded with it
+         */
+        private final long seed;
+
+        private MatchTask(Difficulty left, Difficulty right, int from, int to, long seed) {
+            this.left = left;
+            this.right = right;
+            this.from = from;
+            this.to = to;
+            this.seed = seed;
+        }
+
+        @Override
+        protected PairingResult compute() {
+            if (to - from > MATCHES_PER_LEAF) {
+                int middle = (from + to) >>> 1;
+                MatchTask second = new MatchTask(left, right, middle, to, seed);
+                second.fork();
+                PairingResult result = new MatchTask(left, right, from, middle, seed).compute();
+                result.merge(second.join());
+                return result;
+            }
+            PairingResult result = new PairingResult(left, right);
+            MatchManager match = MatchManager.headless();
+            match.setFixedPoint(Boolean.getBoolean("pong.fixedPoint"));
+            for (int i = from; i < to; i++) {
+                result.ticks += HeadlessRunner.playMatch(match, left, right, SplitMix64.nth(seed, i));
+                result.matches++;
+                if (match.getWinningSide() == 1) result.leftWins++;
+                result.hits += match.ball.getHitCount();
+                result.points += match.getScorePlayer1() + match.getScorePlayer2();
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Plays {@code matchesPerPairing} matches for every pairing and waits for all of them.
+     * @param pool the pool the matches are played on
+     * @param matchesPerPairing how many matches each pairing plays
+     * @return the results, one per pairing, in the order of the difficulties (left first)
+     */
+    public static List<PairingResult> run(ForkJoinPool pool, int matchesPerPairing) {
+        return run(pool, matchesPerPairing, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * The same as {@link #run(ForkJoinPool, int)}, with the seed every match derives from : the same seed gives the
+     * same results.
+     */
+    public static List<PairingResult> run(ForkJoinPool pool, int matchesPerPairing, long seed) {
+        List<MatchTask> tasks = new ArrayList<>();
+        for (Difficulty left : Difficulty.values()) {
+            for (Difficulty right : Difficulty.values()) {
+                long pairingSeed = SplitMix64.nth(seed, tasks.size());
+                MatchTask task = new MatchTask(left, right, 0, matchesPerPairing, pairingSeed);
+                tasks.add(task);
+                pool.execute(task);
+            }
+        }
+        List<PairingResult> results = new ArrayList<>(tasks.size());
+        for (MatchTask task : tasks) results.add(task.join());
+        return results;
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        int matchesPerPairing = (args.length > 0) ? Integer.parseInt(args[0]) : 100;
+        int parallelism = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long seed = (args.length > 2) ? Long.parseLong(args[2]) : ThreadLocalRandom.current().nextLong();
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        long start = System.nanoTime();
+        List<PairingResult> results = run(pool, matchesPerPairing, seed);
+        double seconds = (System.nanoTime() - start) / 1E9;
+        pool.shutdown();
+
+        long matches = 0, ticks = 0;
+        System.out.printf("%-10s %-10s %8s %10s %12s%n", "left", "right", "matches", "left wins", "avg rally");
+        for (PairingResult r : results) {
+            System.out.printf("%-10s %-10s %8d %9.1f%% %12.2f%n",
+                    r.left, r.right, r.matches, r.leftWinRate() * 100, r.averageRallyLength());
+            matches += r.matches;
+            ticks += r.ticks;
+        }
+        System.out.printf("%d matches and %d ticks in %.3f s on %d threads : "
+                        + "%.1f matches per second, %.0f ticks per second%n",
+                matches, ticks, seconds, parallelism, matches / seconds, ticks / seconds);
+        System.out.println("seed " + seed + ", the same seed gives the same results");
+    }
+}
@@ -0,0 +1,144 @@
+package game.test;
+
+import game.ComputerPlayer.Difficulty;
+import game.ComputerWorker;
+import game.MatchManager;
+import game.metrics.Counter;
+import game.metrics.MetricsRegistry;
+
+/**
+ * Checks that the computers play the same with a {@link ComputerWorker} as without it when the worker answers in
+ * time : every pairing is played with a seed, once choosing the targets during the ticks and once with a worker, the
+ * test waiting for the worker after each tick. The hash of the state of every tick, chained together, must be the same
+ * and no deadline may be missed. Then matches are played with the ticks paced, where few events may be missed or
+ * skipped, and as fast as possible, where many are but the matches must still end and the latest event must reach the
+ * worker. It runs headless and exits with 1 if a check fails :
+ * {@code java -Djava.awt.headless=true game.test.ComputerWorkerTest}
+ */
+public class ComputerWorkerTest {
+    private static final long SEED = 7;
+    /**
+     * How long the test waits for an answer of the worker before giving up, in nanoseconds
+     */
+    private static final long TIMEOUT_NS = 5_000_000_000L;
+    /**
+     * The most deadlines that may be missed when the ticks are paced, as a fraction of the events : a yield doesn't
+     * always let the worker run on a single core, which misses 1 or 2% of them
+     */
+    private static final double MAX_MISSED_RATE = 0.05;
+    /**
+     * The most events that may be skipped when the ticks are paced, as a fraction of the events
+     */
+    private static final double MAX_SKIPPED_RATE = 0.01;
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        MetricsRegistry metrics = new MetricsRegistry();
+        ComputerWorker worker = new ComputerWorker(metrics);
+        Counter events = metrics.counter("ai.events");
+        Counter plans = metrics.counter("ai.plans");
+        Counter missed = metrics.counter("ai.deadlines.missed");
+        Counter skipped = metrics.counter("ai.events.skipped");
+        int failures = 0;
+
+        for (boolean fixedPoint : new boolean[] {false, true}) {
+            for (Difficulty left : Difficulty.values()) {
+                for (Difficulty right : Difficulty.values()) {
+                    String pairing = left + " vs " + right + (fixedPoint ? " (fixed point)" : " (float)");
+                    long expected = playMatch(left, right, fixedPoint, null, null, null, null);
+                    long missedBefore = missed.get();
+                    long actual = playMatch(left, right, fixedPoint, worker, events, plans, skipped);
+                    if (actual != expected) {
+                        System.out.println("FAILED : " + pairing + " plays differently with the worker");
+                        failures++;
+                    } else if (missed.get() != missedBefore) {
+                        System.out.println("FAILED : " + pairing + " missed deadlines while the test waited");
+                        failures++;
+                    }
+                }
+            }
+        }
+
+        // the ticks are paced like in the game, which sleeps between them : nearly every deadline is met
+        long eventsBefore = events.get(), missedBefore = missed.get(), skippedBefore = skipped.get();
+        for (Difficulty left : Difficulty.values()) playWithoutWaiting(left, worker, true);
+        long paced = events.get() - eventsBefore;
+        double missedRate = (double) (missed.get() - missedBefore) / paced;
+        double skippedRate = (double) (skipped.get() - skippedBefore) / paced;
+        System.out.printf("paced : %d events, %.2f%% missed, %.2f%% skipped%n", paced, 100 * missedRate,
+                100 * skippedRate);
+        if (missedRate > MAX_MISSED_RATE) {
+            System.out.println("FAILED : more than " + 100 * MAX_MISSED_RATE + "% of the deadlines missed");
+            failures++;
+        }
+        if (skippedRate > MAX_SKIPPED_RATE) {
+            System.out.println("FAILED : more than " + 100 * MAX_SKIPPED_RATE + "% of the events skipped");
+            failures++;
+        }
+
+        // nobody waits for the worker now, the late answers are dropped, but the latest event always reaches it
+        for (Difficulty left : Difficulty.values()) {
+            if (!playWithoutWaiting(left, worker, false)) {
+                System.out.println("FAILED : " + left + " vs GOD never ended without waiting for the worker");
+                failures++;
+            }
+            long start = System.nanoTime();
+            while (plans.get() + skipped.get() < events.get() && System.nanoTime() - start < TIMEOUT_NS) {
+                Thread.yield();
+            }
+            if (plans.get() + skipped.get() != events.get()) {
+                System.out.println("FAILED : the latest event of " + left + " vs GOD never reached the worker");
+                failures++;
+            }
+        }
+        worker.close();
+        System.out.println(metrics.report());
+
+        if (failures > 0) {
+            System.out.println("FAILED : " + failures + " checks");
+            System.exit(1);
+        }
+        System.out.println("OK : the computers play the same with the worker when it answers in time");
+    }
+
+    /**
+     * Plays a match against GOD without waiting for the worker.
+     * @param paced true to let the other threads run after each tick
+     * @return false if the match didn't end
+     */
+    private static boolean playWithoutWaiting(Difficulty left, ComputerWorker worker, boolean paced) {
+        MatchManager match = MatchManager.headless();
+        match.setComputerWorker(worker);
+        match.startGame(left, Difficulty.GOD, SEED);
+        for (long ticks = 0; !match.isOver() && ticks < Integer.MAX_VALUE; ticks++) {
+            match.update();
+            if (paced) Thread.yield();
+        }
+        return match.isOver();
+    }
+
+    /**
+     * Plays a match to the end.
+     * @param worker the worker of the computers, or null to choose the targets during the ticks
+     * @return the hashes of the states of every tick, chained together
+     */
+    private static long playMatch(Difficulty left, Difficulty right, boolean fixedPoint, ComputerWorker worker,
+                                  Counter events, Counter plans, Counter skipped) {
+        MatchManager match = MatchManager.headless();
+        match.setFixedPoint(fixedPoint);
+        match.setComputerWorker(worker);
+        match.startGame(left, right, SEED);
+        long hash = 0;
+        while (!match.isOver()) {
+            match.update();
+            hash = 31 * hash + match.stateHash();
+            if (worker == null) continue;
+            long start = System.nanoTime();
+            while (plans.get() + skipped.get() < events.get()) {
+                if (System.nanoTime() - start > TIMEOUT_NS) throw new IllegalStateException("the worker is stuck");
+                Thread.yield();
+            }
+        }
+        return hash;
+    }
+}
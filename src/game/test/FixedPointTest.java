@@ -0,0 +1,114 @@
+package game.test;
+
+import game.ComputerPlayer.Difficulty;
+import game.FixedPoint;
+import game.MatchManager;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that the fixed-point physics plays exactly the same matches whatever runs the code : seeded bot matches are
+ * played with the hash of the state of every tick chained together, in this JVM where the code gets compiled by C2,
+ * then in a JVM that only interprets and in a JVM that only compiles with C1. The chained hash must be the same in
+ * the 3 JVMs, and the same as {@link #EXPECTED}, so a platform that plays differently is found too. It runs headless
+ * and exits with 1 if a hash differs : {@code java -Djava.awt.headless=true game.test.FixedPointTest}
+ */
+public class FixedPointTest {
+    private static final int MATCHES = 8;
+    private static final long FIRST_SEED = 2024;
+    /**
+     * The chained hash of the matches when the fixed-point physics was written, on x86-64. It must be updated when the
+     * physics or the bots change on purpose.
+     */
+    private static final long EXPECTED = 0x67367f6f4e2d1b54L;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        System.setProperty("java.awt.headless", "true");
+        // in the JVMs started by this test, only the hash is printed
+        if (args.length > 0 && args[0].equals("--hash")) {
+            System.out.println(Long.toHexString(playMatches(Boolean.parseBoolean(args[1]))));
+            return;
+        }
+        int failures = 0;
+        failures += check("sin(0)", FixedPoint.sin(0), 0);
+        failures += check("sin(90 deg)", FixedPoint.sin(FixedPoint.TURN / 4), FixedPoint.ONE);
+        failures += check("cos(180 deg)", FixedPoint.cos(FixedPoint.TURN / 2), -FixedPoint.ONE);
+        failures += check("sqrt(2^62)", FixedPoint.sqrt(1L << 62), 1L << 31);
+        failures += check("sqrt(2^62 - 1)", FixedPoint.sqrt((1L << 62) - 1), (1L << 31) - 1);
+
+        // the matches are played a few times first, so the code is compiled by C2 when it's measured
+        for (int i = 0; i < 3; i++) playMatches(true);
+        long compiled = playMatches(true);
+        failures += check("C2 = expected", compiled, EXPECTED);
+        failures += check("interpreter = C2", Long.parseLong(hashInOtherJvm("-Xint", true), 16), compiled);
+        failures += check("C1 = C2", Long.parseLong(hashInOtherJvm("-XX:TieredStopAtLevel=1", true), 16), compiled);
+
+        // only for information, the float physics is not expected to give the same results everywhere
+        String floatCompiled = Long.toHexString(playMatches(false));
+        String floatInterpreted = hashInOtherJvm("-Xint", false);
+        System.out.println("float physics : " + (floatCompiled.equals(floatInterpreted)
+                ? "the same hash in both JVMs on this platform"
+                : "C2 " + floatCompiled + " != interpreter " + floatInterpreted));
+
+        if (failures > 0) {
+            System.out.println("FAILED : " + failures + " checks");
+            System.exit(1);
+        }
+        System.out.println("OK : the fixed-point physics gives the same matches in every JVM");
+    }
+
+    /**
+     * @return the hashes of the states of every tick of the matches, chained together
+     */
+    private static long playMatches(boolean fixedPoint) {
+        MatchManager match = MatchManager.headless();
+        match.setFixedPoint(fixedPoint);
+        Difficulty[] difficulties = Difficulty.values();
+        long hash = 0;
+        for (int i = 0; i < MATCHES; i++) {
+            match.startGame(difficulties[i % difficulties.length], difficulties[(i / 2) % difficulties.length],
+                    FIRST_SEED + i);
+            while (!match.isOver()) {
+                match.update();
+                hash = 31 * hash + match.stateHash();
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Plays the matches in another JVM, with the same class path.
+     * @param option the option of the JVM that chooses how the code is run
+     * @return the hash printed by the other JVM, in hexadecimal
+     */
+    private static String hashInOtherJvm(String option, boolean fixedPoint) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + "/bin/java");
+        command.add(option);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(FixedPointTest.class.getName());
+        command.add("--hash");
+        command.add(Boolean.toString(fixedPoint));
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String line;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            line = reader.readLine();
+        }
+        if (process.waitFor() != 0) throw new IllegalStateException("the JVM with " + option + " failed : " + line);
+        return line;
+    }
+
+    private static int check(String name, long actual, long expected) {
+        if (actual == expected) {
+            System.out.printf("%-20s OK%n", name);
+            return 0;
+        }
+        System.out.printf("%-20s FAILED : %x instead of %x%n", name, actual, expected);
+        return 1;
+    }
+}
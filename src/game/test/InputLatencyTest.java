@@ -0,0 +1,76 @@
+package game.test;
+
+import game.keyHandling.GameActions;
+import game.keyHandling.InputHandler;
+import game.metrics.Histogram;
+import game.metrics.MetricsRegistry;
+
+import java.awt.Canvas;
+import java.awt.event.KeyEvent;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Checks the latency measured from a key event to the update that reads it : a key press is injected, the test waits
+ * {@link #WAIT_NS}, then the update must give the time the event was received and record the wait in
+ * {@code input.to.drain}. An event that says when the system made it is also recorded in {@code input.delivery}, and
+ * an update without any event must give {@link InputHandler#NO_EVENT}. It runs headless and exits with 1 if a check
+ * fails : {@code java -Djava.awt.headless=true game.test.InputLatencyTest}
+ */
+public class InputLatencyTest {
+    private static final long WAIT_NS = 20_000_000;
+    /**
+     * How long before the event the system is said to have made it, in milliseconds
+     */
+    private static final long DELIVERY_MS = 5;
+    private static int failures = 0;
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        MetricsRegistry metrics = new MetricsRegistry();
+        Canvas canvas = new Canvas();
+        InputHandler<GameActions> input = new InputHandler<>(canvas);
+        input.setMetrics(metrics);
+        Histogram drain = metrics.histogram("input.to.drain");
+        Histogram delivery = metrics.histogram("input.delivery", "ms");
+
+        input.update();
+        check(input.getOldestEventTime() == InputHandler.NO_EVENT, "an update without event gave a time");
+
+        long before = System.nanoTime();
+        input.keyPressed(new KeyEvent(canvas, KeyEvent.KEY_PRESSED, System.currentTimeMillis() - DELIVERY_MS, 0,
+                KeyEvent.VK_S, KeyEvent.CHAR_UNDEFINED));
+        long after = System.nanoTime();
+        while (System.nanoTime() - after < WAIT_NS) LockSupport.parkNanos(WAIT_NS);
+        long updateStart = System.nanoTime();
+        input.update();
+        long updateEnd = System.nanoTime();
+
+        long eventTime = input.getOldestEventTime();
+        check(eventTime != InputHandler.NO_EVENT && eventTime - before >= 0 && after - eventTime >= 0,
+                "the time of the event is not when it was received");
+        check(input.actionActivated(GameActions.PLAYER1_MOVE_DOWN), "the key press was not read");
+        check(drain.getCount() == 1, drain.getCount() + " latencies recorded in input.to.drain instead of 1");
+        long latency = drain.getMax();
+        check(latency >= updateStart - after && latency <= updateEnd - before,
+                "input.to.drain recorded " + latency + " ns, not the wait of about " + WAIT_NS + " ns");
+        check(delivery.getCount() == 1 && delivery.getMax() >= DELIVERY_MS,
+                "input.delivery didn't record the " + DELIVERY_MS + " ms the system took");
+        System.out.printf("input.to.drain : %.3f ms, input.delivery : %d ms%n", latency / 1E6, delivery.getMax());
+
+        input.update();
+        check(input.getOldestEventTime() == InputHandler.NO_EVENT, "the event was read twice");
+        check(drain.getCount() == 1, "an update without event recorded a latency");
+
+        if (failures > 0) {
+            System.out.println("FAILED : " + failures + " checks");
+            System.exit(1);
+        }
+        System.out.println("OK : the latency of a key event is measured from the event to the update that reads it");
+    }
+
+    private static void check(boolean condition, String failure) {
+        if (condition) return;
+        System.out.println("FAILED : " + failure);
+        failures++;
+    }
+}
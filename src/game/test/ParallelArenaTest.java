@@ -0,0 +1,68 @@
+package game.test;
+
+import game.ComputerPlayer.Difficulty;
+import game.MatchManager;
+import game.arena.BallArena;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Checks that the parallel update of a {@link BallArena} gives exactly the same balls, points and hits as the
+ * sequential one : two arenas with the same serves play next to each other, the rackets of a bot match moving in both,
+ * one always sequential and the other always split into chunks, even with a single core. It runs headless and exits
+ * with 1 if the arenas differ : {@code java -Djava.awt.headless=true game.test.ParallelArenaTest}
+ */
+public class ParallelArenaTest {
+    private static final int BALLS = 20_000;
+    private static final int TICKS = 5_000;
+    private static final int THREADS = 4;
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        MatchManager match = MatchManager.headless();
+        match.startGame(Difficulty.SMART, Difficulty.GOD);
+
+        BallArena sequential = BallArena.served(BALLS, 1234);
+        sequential.setParallelism(ForkJoinPool.commonPool(), Integer.MAX_VALUE);
+        BallArena parallel = BallArena.served(BALLS, 1234);
+        ForkJoinPool pool = new ForkJoinPool(THREADS);
+        parallel.setParallelism(pool, 0);
+
+        int tick = 0;
+        String difference = null;
+        for (; tick < TICKS && difference == null; tick++) {
+            match.update();
+            if (match.isOver()) match.startGame(Difficulty.SMART, Difficulty.GOD);
+            sequential.update(match.player1, match.player2);
+            parallel.update(match.player1, match.player2);
+            difference = compare(sequential, parallel);
+        }
+        pool.shutdown();
+
+        System.out.printf("%,d ticks of %,d balls : %,d hits, %d - %d%n", tick, BALLS,
+                parallel.getHits(), parallel.getPointsPlayer1(), parallel.getPointsPlayer2());
+        if (difference != null) {
+            System.out.println("FAILED at tick " + tick + " : " + difference);
+            System.exit(1);
+        }
+        System.out.println("OK : the parallel update is the same as the sequential one");
+    }
+
+    /**
+     * @return what differs between the arenas, or null if they're the same
+     */
+    private static String compare(BallArena a, BallArena b) {
+        if (a.getHits() != b.getHits()) return "hits " + a.getHits() + " != " + b.getHits();
+        if (a.getPointsPlayer1() != b.getPointsPlayer1() || a.getPointsPlayer2() != b.getPointsPlayer2()) {
+            return "points " + a.getPointsPlayer1() + " - " + a.getPointsPlayer2()
+                    + " != " + b.getPointsPlayer1() + " - " + b.getPointsPlayer2();
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (Float.floatToRawIntBits(a.getX(i)) != Float.floatToRawIntBits(b.getX(i))
+                    || Float.floatToRawIntBits(a.getY(i)) != Float.floatToRawIntBits(b.getY(i))) {
+                return "ball " + i + " at " + a.getX(i) + ", " + a.getY(i) + " != " + b.getX(i) + ", " + b.getY(i);
+            }
+        }
+        return null;
+    }
+}
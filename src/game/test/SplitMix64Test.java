@@ -0,0 +1,73 @@
+package game.test;
+
+import game.SplitMix64;
+
+import java.util.SplittableRandom;
+
+/**
+ * Checks that {@link SplitMix64} gives the same longs as {@link SplittableRandom}, that its state and
+ * {@link SplitMix64#nth(long, long)} give the numbers back, and that its gaussians have the moments and the tails of
+ * the standard normal distribution. It runs headless and exits with 1 if a check fails :
+ * {@code java game.test.SplitMix64Test}
+ */
+public class SplitMix64Test {
+    private static final int LONGS = 1000;
+    private static final int GAUSSIANS = 4_000_000;
+
+    public static void main(String[] args) {
+        int failures = 0;
+
+        for (long seed : new long[] {0, 1, -1, 2024, Long.MIN_VALUE}) {
+            SplitMix64 random = new SplitMix64(seed);
+            SplittableRandom reference = new SplittableRandom(seed);
+            int different = 0;
+            for (int i = 0; i < LONGS; i++) {
+                long next = random.nextLong();
+                if (next != reference.nextLong() || next != SplitMix64.nth(seed, i)) different++;
+            }
+            failures += check("longs of seed " + seed, different == 0, different + " different longs");
+        }
+
+        SplitMix64 random = new SplitMix64(7);
+        for (int i = 0; i < 100; i++) random.nextGaussian();
+        long state = random.getState();
+        double first = random.nextGaussian();
+        random.nextGaussian();
+        random.setState(state);
+        failures += check("state", random.nextGaussian() == first, "the gaussian changed after a restore");
+
+        double sum = 0, squares = 0;
+        int beyondOne = 0, beyondTail = 0, positive = 0;
+        for (int i = 0; i < GAUSSIANS; i++) {
+            double g = random.nextGaussian();
+            sum += g;
+            squares += g * g;
+            if (Math.abs(g) > 1) beyondOne++;
+            if (Math.abs(g) > 3.5) beyondTail++;
+            if (g > 0) positive++;
+        }
+        double mean = sum / GAUSSIANS;
+        double variance = squares / GAUSSIANS - mean * mean;
+        // the tolerances are about 5 standard deviations of the estimates
+        failures += check("mean", Math.abs(mean) < 0.0025, "mean " + mean);
+        failures += check("variance", Math.abs(variance - 1) < 0.0035, "variance " + variance);
+        failures += check("P(|g| > 1)", Math.abs((double) beyondOne / GAUSSIANS - 0.31731) < 0.0012,
+                "P(|g| > 1) = " + (double) beyondOne / GAUSSIANS);
+        // beyond the start of the tail of the ziggurat, 3.44
+        failures += check("P(|g| > 3.5)", Math.abs((double) beyondTail / GAUSSIANS - 4.653e-4) < 0.6e-4,
+                "P(|g| > 3.5) = " + (double) beyondTail / GAUSSIANS);
+        failures += check("symmetry", Math.abs((double) positive / GAUSSIANS - 0.5) < 0.0013,
+                "P(g > 0) = " + (double) positive / GAUSSIANS);
+
+        if (failures > 0) {
+            System.out.println("FAILED : " + failures + " checks");
+            System.exit(1);
+        }
+        System.out.println("OK : SplitMix64 gives the longs of SplittableRandom and normal gaussians");
+    }
+
+    private static int check(String name, boolean ok, String failure) {
+        System.out.printf("%-20s %s%n", name, ok ? "OK" : "FAILED : " + failure);
+        return ok ? 0 : 1;
+    }
+}
@@ -0,0 +1,114 @@
+package game.test;
+
+import game.Ball;
+import game.ComputerPlayer.Difficulty;
+import game.Game;
+import game.MatchManager;
+import game.Racket;
+
+/**
+ * Fires the ball at speeds no real match reaches, to check the swept collisions of {@link Ball} : the ball must
+ * bounce on the rackets instead of going through them, bounce on the walls as many times as needed within a tick, and
+ * end the tick where the exact bounces put it. It runs headless and exits with 1 if a check fails :
+ * {@code java -Djava.awt.headless=true game.test.SweptCollisionTest}
+ */
+public class SweptCollisionTest {
+    private static final float[] SPEEDS = {5, 29, 31, 100, 1_000, 10_000, 100_000};
+    private static int failures = 0;
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        MatchManager match = MatchManager.headless();
+
+        for (float speed : SPEEDS) {
+            for (int side = 1; side >= -1; side -= 2) {
+                // straight at the center of the racket, it comes back along the same line
+                fire(match, speed, side, 0);
+                // at the corners of the racket
+                fire(match, speed, side, Racket.HEIGHT / 2f + Ball.RADIUS / 2f);
+                fire(match, speed, side, -Racket.HEIGHT / 2f - Ball.RADIUS / 2f);
+            }
+            // beyond 64 bounces in a tick, the ball stops for the rest of the tick
+            if (speed <= 64 * (Game.HEIGHT - 2 * Ball.RADIUS) / 2f) walls(match, speed);
+        }
+
+        if (failures > 0) {
+            System.out.println("FAILED : " + failures + " checks");
+            System.exit(1);
+        }
+        System.out.println("OK : the ball never went through anything");
+    }
+
+    /**
+     * Fires the ball from the middle of the field toward a racket and checks it bounced back without getting to the
+     * goal.
+     * @param side the side of the racket
+     * @param offset where the ball is aimed, relative to the center of the racket
+     */
+    private static void fire(MatchManager match, float speed, int side, float offset) {
+        match.startGame(Difficulty.SMART, Difficulty.SMART, 0);
+        Racket racket = (side == 1) ? match.player1 : match.player2;
+        Ball ball = match.ball;
+        float startX = Game.WIDTH / 2f;
+        float startY = Game.HEIGHT / 2f;
+        float targetX = racket.getCenterX() + (Racket.WIDTH / 2f + Ball.RADIUS) * racket.side;
+        float targetY = racket.getCenterY() + offset;
+        float ticks = Math.abs(targetX - startX) / speed;
+        ball.position.set(startX, startY);
+        ball.speed.set((targetX - startX) / ticks, (targetY - startY) / ticks);
+        for (int i = 0; i <= ticks && ball.getHitCount() == 0; i++) ball.update();
+
+        String name = String.format("speed %.0f at %s racket, offset %.0f", speed,
+                (racket.side == 1) ? "left" : "right", offset);
+        check(ball.getHitCount() > 0, name + " : the racket was not hit");
+        // at these speeds, the ball can bounce back and reach the other goal within the tick, which is fine
+        check(ball.touchDown() != -side || ball.getHitCount() > 1, name + " : the ball went through to the goal");
+        check(ball.speed.getX() * racket.side > 0 || ball.getHitCount() > 1,
+                name + " : the ball didn't bounce back");
+        checkInside(ball, name);
+    }
+
+    /**
+     * Fires the ball almost vertically from the middle of the field, so it bounces on the walls many times in a tick
+     * without meeting a racket, and compares its position with the exact reflections.
+     */
+    private static void walls(MatchManager match, float speed) {
+        match.startGame(Difficulty.SMART, Difficulty.SMART, 0);
+        Ball ball = match.ball;
+        float vy = speed;
+        float vx = 0.25f;
+        ball.position.set(Game.WIDTH / 2f, Game.HEIGHT / 2f);
+        ball.speed.set(vx, vy);
+        ball.update();
+
+        String name = String.format("speed %.0f between the walls", speed);
+        double expected = reflect(Game.HEIGHT / 2.0 + vy);
+        // the bounces are calculated with floats, the error grows with the number of bounces
+        double tolerance = 1E-3 * Math.max(1, speed / (Game.HEIGHT - 2 * Ball.RADIUS));
+        check(Math.abs(ball.position.getY() - expected) <= tolerance || ball.speed.getY() == 0,
+                name + " : y = " + ball.position.getY() + " instead of " + expected);
+        check(Math.abs(ball.position.getX() - (Game.WIDTH / 2f + vx)) < 1E-3, name + " : x moved wrong");
+        checkInside(ball, name);
+    }
+
+    /**
+     * @return where a ball moving freely to y ends up once the bounces on the walls are applied
+     */
+    private static double reflect(double y) {
+        double h = Game.HEIGHT - 2 * Ball.RADIUS;
+        double m = (y - Ball.RADIUS) % (2 * h);
+        if (m < 0) m += 2 * h;
+        return ((m <= h) ? m : 2 * h - m) + Ball.RADIUS;
+    }
+
+    private static void checkInside(Ball ball, String name) {
+        float y = ball.position.getY();
+        check(y >= Ball.RADIUS && y <= Game.HEIGHT - Ball.RADIUS, name + " : the ball left the field, y = " + y);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (condition) return;
+        failures++;
+        System.out.println(message);
+    }
+}
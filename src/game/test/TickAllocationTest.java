@@ -0,0 +1,129 @@
+package game.test;
+
+import game.ComputerPlayer.Difficulty;
+import game.MatchManager;
+import game.keyHandling.GameActions;
+import game.keyHandling.InputHandler;
+
+import java.awt.Canvas;
+import java.awt.event.KeyEvent;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Checks that a tick of a match doesn't allocate anything once the match is started, since allocating every tick is
+ * what causes the pauses of the young GC during long sessions. The bytes are counted with
+ * {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)} around {@link MatchManager#update()} only, so
+ * starting the matches and pressing the keys are not counted. It runs headless and exits with 1 if a tick allocated :
+ * {@code java -Djava.awt.headless=true game.test.TickAllocationTest}
+ */
+public class TickAllocationTest {
+    /**
+     * The first time a rare branch runs (a ball hitting the corner of a racket for instance), the JVM may deoptimize
+     * and resolve what the branch uses, which allocates once. So the measured matches are played first with the same
+     * seeds, and the measured keys are pressed first in the same order, then they're measured once and must not
+     * allocate a single byte.
+     */
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int MEASURED_MATCHES = 5;
+    private static final int SEGMENT_TICKS = 1000;
+    private static final int PLAYER_SEGMENTS = 500;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static long ticks;
+    private static long bytes;
+
+    private static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().threadId());
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        if (!THREADS.isThreadAllocatedMemorySupported()) {
+            System.out.println("The allocated bytes can't be measured on this JVM");
+            return;
+        }
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+        boolean failed = false;
+
+        // every pairing is warmed up before measuring, so what's loaded and compiled for the first one is not counted
+        MatchManager match = MatchManager.headless();
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            for (Difficulty left : Difficulty.values()) {
+                for (Difficulty right : Difficulty.values()) playMatches(match, left, right);
+            }
+        }
+        for (Difficulty left : Difficulty.values()) {
+            for (Difficulty right : Difficulty.values()) {
+                playMatches(match, left, right);
+                failed |= report(left + " vs " + right);
+            }
+        }
+
+        for (int gameMode = 1; gameMode <= 2; gameMode++) {
+            Canvas canvas = new Canvas();
+            InputHandler<GameActions> input = new InputHandler<>(canvas);
+            MatchManager playerMatch = MatchManager.headless(input);
+            // warms up, then measures the same ticks, while the keys are pressed and released between the segments
+            for (int round = 0; round <= WARMUP_ROUNDS; round++) {
+                playerMatch.startGame(gameMode, 0);
+                ticks = bytes = 0;
+                for (int segment = 0; segment < PLAYER_SEGMENTS; segment++) {
+                    boolean down = segment % 2 == 0;
+                    press(input, canvas, KeyEvent.VK_S, down);
+                    press(input, canvas, KeyEvent.VK_Z, !down);
+                    press(input, canvas, KeyEvent.VK_DOWN, !down);
+                    press(input, canvas, KeyEvent.VK_UP, down);
+                    if (playerMatch.isOver()) playerMatch.startGame(gameMode, segment);
+                    long before = allocatedBytes();
+                    for (int i = 0; i < SEGMENT_TICKS; i++) {
+                        input.update();
+                        playerMatch.update();
+                    }
+                    bytes += allocatedBytes() - before;
+                    ticks += SEGMENT_TICKS;
+                }
+            }
+            failed |= report((gameMode == 1) ? "player vs bot" : "player vs player");
+        }
+
+        if (failed) {
+            System.out.println("FAILED : the ticks allocate");
+            System.exit(1);
+        }
+        System.out.println("OK : the ticks don't allocate");
+    }
+
+    /**
+     * Plays the measured matches of a pairing, with the seeds 0 to {@link #MEASURED_MATCHES} - 1, and counts their
+     * ticks and what they allocated.
+     */
+    private static void playMatches(MatchManager match, Difficulty left, Difficulty right) {
+        ticks = bytes = 0;
+        for (int i = 0; i < MEASURED_MATCHES; i++) {
+            match.startGame(left, right, i);
+            long before = allocatedBytes();
+            while (!match.isOver()) {
+                match.update();
+                ticks++;
+            }
+            bytes += allocatedBytes() - before;
+        }
+    }
+
+    private static void press(InputHandler<GameActions> input, Canvas canvas, int keyCode, boolean pressed) {
+        int id = pressed ? KeyEvent.KEY_PRESSED : KeyEvent.KEY_RELEASED;
+        KeyEvent e = new KeyEvent(canvas, id, 0, 0, keyCode, KeyEvent.CHAR_UNDEFINED);
+        if (pressed) input.keyPressed(e);
+        else input.keyReleased(e);
+    }
+
+    /**
+     * @return true if the ticks measured allocated
+     */
+    private static boolean report(String name) {
+        System.out.printf("%-22s %,12d ticks %,12d bytes allocated (%.3f B/tick)%n",
+                name, ticks, bytes, (double) bytes / ticks);
+        return bytes > 0;
+    }
+}